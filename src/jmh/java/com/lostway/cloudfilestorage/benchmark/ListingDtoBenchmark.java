@@ -0,0 +1,87 @@
+package com.lostway.cloudfilestorage.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lostway.cloudfilestorage.controller.dto.ResourcePageDTO;
+import com.lostway.cloudfilestorage.controller.dto.StorageAnswerDTO;
+import com.lostway.cloudfilestorage.controller.dto.StorageFolderAnswerDTO;
+import com.lostway.cloudfilestorage.controller.dto.StorageResourceDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getNameFromPath;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getParentFolders;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.isFolderPath;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.toCursor;
+
+/**
+ * Страница листинга: ключи объектов --> DTO (StorageAnswerDTO / StorageFolderAnswerDTO) --> JSON ответа.
+ * Ключи синтетические, каждый десятый - папка
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingDtoBenchmark {
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<String> objectNames;
+
+    private ResourcePageDTO page;
+
+    @Setup
+    public void setup() {
+        objectNames = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            objectNames.add(i % 10 == 0
+                    ? "user-42-files/Документы/папка " + i + "/"
+                    : "user-42-files/Документы/отчет_" + i + ".pdf");
+        }
+        page = toPage();
+    }
+
+    /**
+     * Создание DTO страницы так же, как FileStorageService.itemToDto
+     */
+    @Benchmark
+    public ResourcePageDTO toPage() {
+        List<StorageResourceDTO> items = new ArrayList<>(objectNames.size());
+        for (String objectName : objectNames) {
+            String path = getParentFolders(objectName);
+            String name = getNameFromPath(objectName);
+            items.add(isFolderPath(objectName)
+                    ? StorageFolderAnswerDTO.getDefault(path, name)
+                    : StorageAnswerDTO.getDefault(path, name, 1024L * objectName.length()));
+        }
+        return new ResourcePageDTO(items, toCursor(objectNames.getLast()));
+    }
+
+    @Benchmark
+    public byte[] pageToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page.items());
+    }
+
+    @Benchmark
+    public byte[] toPageAndJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toPage().items());
+    }
+}
@@ -0,0 +1,84 @@
+package com.lostway.cloudfilestorage.benchmark;
+
+import com.lostway.cloudfilestorage.mapper.JsonConverter;
+import com.lostway.cloudfilestorage.mapper.KafkaMapper;
+import com.lostway.cloudfilestorage.mapper.KafkaMapperImpl;
+import com.lostway.cloudfilestorage.repository.entity.OutboxKafka;
+import com.lostway.cloudfilestorage.repository.entity.UpdateFile;
+import com.lostway.jwtsecuritylib.kafka.FileUploadedEvent;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import com.lostway.jwtsecuritylib.kafka.enums.FileStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь события о загрузке файла в outbox: UpdateFile --> FileUploadedEvent --> OutboxKafka (KafkaMapper)
+ * и JSON payload-а в колонке outbox (JsonConverter)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboxEventBenchmark {
+
+    private final KafkaMapper kafkaMapper = new KafkaMapperImpl();
+
+    private final JsonConverter jsonConverter = new JsonConverter();
+
+    private UpdateFile updateFile;
+
+    private FileUploadedEvent event;
+
+    private String eventJson;
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.now();
+        updateFile = UpdateFile.builder()
+                .fileId(UUID.randomUUID())
+                .fileName("user-42-files/Документы/годовой_отчет-v2.docx")
+                .contentType(ContentType.DOCX)
+                .fileSize(1_482_113L)
+                .uploaderEmail("user42@example.com")
+                .status(FileStatus.UPLOADED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        event = kafkaMapper.fromEntityToFileUpdateEvent(updateFile);
+        eventJson = jsonConverter.convertToDatabaseColumn(event);
+    }
+
+    @Benchmark
+    public OutboxKafka mapToOutbox() {
+        return kafkaMapper.fromDtoToEntity(kafkaMapper.fromEntityToFileUpdateEvent(updateFile));
+    }
+
+    @Benchmark
+    public String eventToJson() {
+        return jsonConverter.convertToDatabaseColumn(event);
+    }
+
+    @Benchmark
+    public FileUploadedEvent jsonToEvent() {
+        return jsonConverter.convertToEntityAttribute(eventJson);
+    }
+
+    @Benchmark
+    public FileUploadedEvent jsonRoundTrip() {
+        return jsonConverter.convertToEntityAttribute(jsonConverter.convertToDatabaseColumn(event));
+    }
+}
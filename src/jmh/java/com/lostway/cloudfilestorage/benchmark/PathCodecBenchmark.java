@@ -0,0 +1,101 @@
+package com.lostway.cloudfilestorage.benchmark;
+
+import com.lostway.cloudfilestorage.utils.PathCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор путей: прежние реализации на регулярных выражениях и split (legacy*) против {@link PathCodec}.
+ * Запуск: mvn -Pjmh verify -Djmh.includes=PathCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathCodecBenchmark {
+
+    @Param({"user-42-files/docs/", "user-42-files/Документы/отчеты 2025/", "user-42-files/a/b/c/d/e/f/g/h/"})
+    private String folderPath;
+
+    @Param({"user-42-files/docs/report.pdf", "user-42-files/Документы/отчеты 2025/годовой_отчет-v2.docx"})
+    private String filePath;
+
+    private String oldFolderPath;
+
+    private String newFolderPath;
+
+    @Setup
+    public void setup() {
+        oldFolderPath = filePath.substring(0, filePath.lastIndexOf('/') + 1);
+        newFolderPath = "user-42-files/archive/2025/";
+    }
+
+    @Benchmark
+    public boolean legacyCheckFolderPath() {
+        return folderPath.matches("^(?!.*//)(?!.*\\.{1,2})([\\p{L}\\d _-]+/)*$");
+    }
+
+    @Benchmark
+    public boolean codecCheckFolderPath() {
+        return PathCodec.isValidFolderPath(folderPath);
+    }
+
+    @Benchmark
+    public boolean legacyValidatePathToFile() {
+        return filePath.matches("^(?!.*//)(?!.*(?:^|/)\\.)(?!.*(?:^|/)\\.\\.)([\\p{L}\\p{N} _\\-]+/)*[\\p{L}\\p{N} _\\-]+\\.[\\p{L}\\p{N}]+$");
+    }
+
+    @Benchmark
+    public boolean codecValidatePathToFile() {
+        return PathCodec.isValidFilePath(filePath);
+    }
+
+    @Benchmark
+    public String legacyGetNameFromPath() {
+        String trimmedPath = folderPath.endsWith("/")
+                ? folderPath.substring(0, folderPath.length() - 1)
+                : folderPath;
+        String[] parts = trimmedPath.split("/");
+        return parts[parts.length - 1];
+    }
+
+    @Benchmark
+    public String codecGetNameFromPath() {
+        return PathCodec.name(folderPath);
+    }
+
+    @Benchmark
+    public String legacyRebase() {
+        return filePath.replaceFirst(Pattern.quote(oldFolderPath), newFolderPath);
+    }
+
+    @Benchmark
+    public String codecRebase() {
+        return PathCodec.rebase(filePath, oldFolderPath, newFolderPath);
+    }
+
+    /**
+     * Полный разбор: проверка, нормализация, имя и родительская папка
+     */
+    @Benchmark
+    public void codecParse(Blackhole blackhole) {
+        PathCodec.ParsedPath parsed = PathCodec.parse(filePath);
+        blackhole.consume(parsed.name());
+        blackhole.consume(parsed.parent());
+    }
+}
@@ -0,0 +1,59 @@
+package com.lostway.cloudfilestorage.benchmark;
+
+import com.lostway.cloudfilestorage.utils.MinioStorageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка и нормализация путей через публичные методы {@link MinioStorageUtils}, как их вызывают сервисы
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoragePathBenchmark {
+
+    private static final String ROOT_FOLDER = "user-42-files/";
+
+    @Param({"docs/", "/Документы/отчеты 2025/", "docs/report.pdf", "Документы/отчеты 2025/годовой_отчет-v2.docx"})
+    private String path;
+
+    /**
+     * Путь из запроса --> полный путь пользователя (как getFullUserPath без разбора токена)
+     */
+    @Benchmark
+    public String normalize() {
+        String newPath = ROOT_FOLDER + MinioStorageUtils.getStandardPath(path);
+        return MinioStorageUtils.isFolderPath(newPath) && !newPath.endsWith("/") ? newPath + "/" : newPath;
+    }
+
+    @Benchmark
+    public void validate() {
+        MinioStorageUtils.validateResourcePath(ROOT_FOLDER + MinioStorageUtils.getStandardPath(path));
+    }
+
+    @Benchmark
+    public void parentAndName(Blackhole blackhole) {
+        String fullPath = ROOT_FOLDER + MinioStorageUtils.getStandardPath(path);
+        blackhole.consume(MinioStorageUtils.getParentFolders(fullPath));
+        blackhole.consume(MinioStorageUtils.getNameFromPath(fullPath));
+    }
+
+    @Benchmark
+    public String cursorRoundTrip() {
+        return MinioStorageUtils.fromCursor(MinioStorageUtils.toCursor(ROOT_FOLDER + path));
+    }
+}
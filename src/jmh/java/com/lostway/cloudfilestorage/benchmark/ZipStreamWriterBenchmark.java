@@ -0,0 +1,97 @@
+package com.lostway.cloudfilestorage.benchmark;
+
+import com.lostway.cloudfilestorage.streaming.ZipStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись ZIP архива из потоков в памяти (без MinIO): STORED и DEFLATE записи, сжимаемое и несжимаемое содержимое.
+ * Архив пишется в поток, который только считает байты
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipStreamWriterBenchmark {
+
+    @Param({"100"})
+    private int entries;
+
+    @Param({"65536", "1048576"})
+    private int entrySize;
+
+    @Param({"true", "false"})
+    private boolean deflate;
+
+    @Param({"text", "random"})
+    private String content;
+
+    @Param({"6"})
+    private int compressionLevel;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[entrySize];
+        if ("random".equals(content)) {
+            new Random(42).nextBytes(data);
+        } else {
+            byte[] line = "2025-01-01T00:00:00Z INFO запись журнала для проверки сжатия архива\n"
+                    .getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < entrySize; i++) {
+                data[i] = line[i % line.length];
+            }
+        }
+    }
+
+    @Benchmark
+    public long writeArchive() throws IOException {
+        CountingNullOutputStream out = new CountingNullOutputStream();
+        try (ZipStreamWriter zipOut = new ZipStreamWriter(out, compressionLevel)) {
+            for (int i = 0; i < entries; i++) {
+                OutputStream entryOut = zipOut.putNextEntry("folder/file-" + i + ".txt", deflate);
+                try (InputStream in = new ByteArrayInputStream(data)) {
+                    in.transferTo(entryOut);
+                }
+                zipOut.closeEntry();
+            }
+            zipOut.finish();
+        }
+        return out.count;
+    }
+
+    private static final class CountingNullOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
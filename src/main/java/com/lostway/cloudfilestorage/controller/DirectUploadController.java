@@ -0,0 +1,78 @@
+package com.lostway.cloudfilestorage.controller;
+
+import com.lostway.cloudfilestorage.controller.dto.DirectUploadDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
+import com.lostway.cloudfilestorage.exception.dto.ErrorResponseDTO;
+import com.lostway.cloudfilestorage.minio.DirectUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@Tag(name = "Direct Uploads", description = "API для загрузки файлов напрямую в хранилище по подписанной политике.")
+@RestController
+@RequestMapping("${api.url}/direct-uploads")
+@RequiredArgsConstructor
+public class DirectUploadController {
+    private final DirectUploadService directUploadService;
+
+    @Operation(
+            summary = "Получение политики прямой загрузки.",
+            description = "Возвращает адрес и поля формы (POST multipart/form-data), по которым клиент загружает файл " +
+                    "прямо в хранилище. Поле file передается последним. После загрузки нужно подтвердить загрузку."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Политика выдана.",
+                    content = @Content(schema = @Schema(implementation = DirectUploadDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Файл с таким именем уже существует.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping
+    public ResponseEntity<DirectUploadDTO> createUpload(
+            @Parameter(description = "Имя файла", example = "report.pdf") @RequestParam("fileName") String fileName,
+            HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(directUploadService.createUpload(fileName, request));
+    }
+
+    @Operation(
+            summary = "Подтверждение прямой загрузки.",
+            description = "Проверяет загруженный файл и отправляет его на обработку."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Файл принят.",
+                    content = @Content(schema = @Schema(implementation = UploadFileResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Содержимое файла не соответствует формату.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Файл еще не загружен или сессия не найдена.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<UploadFileResponseDTO> complete(@PathVariable UUID sessionId, HttpServletRequest request) {
+        return ResponseEntity.ok(directUploadService.complete(sessionId, request));
+    }
+}
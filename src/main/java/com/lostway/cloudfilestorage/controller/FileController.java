@@ -1,5 +1,7 @@
 package com.lostway.cloudfilestorage.controller;
 
+import com.lostway.cloudfilestorage.controller.dto.BatchUploadResponseDTO;
+import com.lostway.cloudfilestorage.controller.dto.ResourcePageDTO;
 import com.lostway.cloudfilestorage.controller.dto.StorageResourceDTO;
 import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
 import com.lostway.cloudfilestorage.exception.dto.ErrorResponseDTO;
@@ -18,11 +20,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -37,6 +39,8 @@ import java.util.List;
 @RequestMapping("${api.url}")
 @RequiredArgsConstructor
 public class FileController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final FileStorageService fileStorageService;
     private final JwtUtil jwtUtil;
 
@@ -50,6 +54,64 @@ public class FileController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Пакетная загрузка файлов.",
+            description = "Загружает несколько файлов за один запрос. Ошибка одного файла не отменяет загрузку остальных, " +
+                    "результат возвращается по каждому файлу."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Результат загрузки по каждому файлу.",
+                    content = @Content(schema = @Schema(implementation = BatchUploadResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Пустой запрос или слишком много файлов.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping(value = "/report/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchUploadResponseDTO> uploadBatch(
+            @RequestParam(value = "files") List<MultipartFile> files,
+            HttpServletRequest request
+    ) {
+        return ResponseEntity.ok(fileStorageService.uploadFiles(files, request));
+    }
+
+    @Operation(
+            summary = "Потоковая загрузка файла.",
+            description = "Тело запроса (сам файл) передается в хранилище частями, без сохранения во временный файл на сервере. "
+                    + "С заголовком X-Content-SHA256 уже хранящийся файл (при включенной дедупликации) не записывается повторно, "
+                    + "заявленный хеш сверяется с содержимым."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Файл успешно загружен.",
+                    content = @Content(schema = @Schema(implementation = UploadFileResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Неверный формат или размер файла, SHA-256 не совпал с содержимым.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Файл с таким именем уже существует.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping(value = "/report/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadFileResponseDTO> uploadStream(
+            @Parameter(description = "Имя файла", example = "report.pdf") @RequestParam("fileName") String fileName,
+            @Parameter(description = "SHA-256 содержимого в hex. Если такой файл уже хранится, он не загружается в хранилище повторно")
+            @RequestHeader(name = "X-Content-SHA256", required = false) String sha256,
+            HttpServletRequest request
+    ) {
+        return ResponseEntity.ok(fileStorageService.uploadFileStream(fileName, sha256, request));
+    }
+
     @Operation(
             summary = "Получение информации о ресурсе.",
             description = "Получает информацию о папке/файле (файл отображает его размер)."
@@ -94,9 +156,48 @@ public class FileController {
         return ResponseEntity.noContent().build();
     }
 
+    @Operation(
+            summary = "Перемещение/переименование ресурса.",
+            description = "Перемещает или переименовывает файл/папку (папку вместе со всем содержимым). " +
+                    "Если перемещение папки было прервано, повторный запрос с теми же путями продолжает его."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Ресурс перемещен, в ответе информация о нем по новому пути.",
+                    content = @Content(schema = @Schema(implementation = StorageResourceDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Невалидный путь, пути ведут к ресурсам разного типа или папка перемещается внутрь себя.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Ресурс или папка назначения не найдены.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Ресурс по новому пути уже существует.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/resource/move")
+    public ResponseEntity<StorageResourceDTO> moveResource(
+            @Parameter(description = "Текущий путь ресурса", example = "test/old/") @RequestParam("from") String from,
+            @Parameter(description = "Новый путь ресурса", example = "test/new/") @RequestParam("to") String to,
+            HttpServletRequest request) {
+        fileStorageService.createUserRootFolder(request);
+        return ResponseEntity.ok(fileStorageService.moveResource(from, to, request));
+    }
+
     @Operation(
             summary = "Получение информации о ресурсах по пути.",
-            description = "Получение информации о директории со всеми файлами и папками внутри/файле."
+            description = "Получение информации о директории со всеми файлами и папками внутри/файле. " +
+                    "Без limit и cursor возвращается все содержимое папки. С limit или cursor содержимое отдается страницами, " +
+                    "курсор следующей страницы возвращается в заголовке X-Next-Cursor. " +
+                    "С stream=true (JSON массив) или Accept: application/x-ndjson содержимое папки передается потоком целиком."
     )
     @ApiResponses({
             @ApiResponse(
@@ -105,10 +206,23 @@ public class FileController {
                     content = @Content(schema = @Schema(implementation = StorageResourceDTO.class))
             )
     })
-    @GetMapping("/directory")
-    public ResponseEntity<List<StorageResourceDTO>> getDirectoryFiles(@RequestParam(value = "path", required = false) String path, HttpServletRequest request) {
+    @GetMapping(value = "/directory", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> getDirectoryFiles(
+            @RequestParam(value = "path", required = false) String path,
+            @Parameter(description = "Размер страницы", example = "1000") @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Передать содержимое папки потоком целиком") @RequestParam(value = "stream", defaultValue = "false") boolean stream,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletRequest request) {
         fileStorageService.createUserRootFolder(request);
-        return ResponseEntity.ok(fileStorageService.getFilesFromDirectory(path, request));
+
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        if (stream || ndjson) {
+            return ResponseEntity.ok()
+                    .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                    .body(fileStorageService.streamFilesFromDirectory(path, cursor, ndjson, request));
+        }
+        return toPageResponse(fileStorageService.getFilesFromDirectory(path, limit, cursor, request));
     }
 
     @Operation(
@@ -122,6 +236,23 @@ public class FileController {
                     description = "Ссылка на скачивание",
                     content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
             ),
+            @ApiResponse(
+                    responseCode = "206",
+                    description = "Часть файла по заголовку Range (несколько диапазонов --> multipart/byteranges)",
+                    content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            ),
+            @ApiResponse(
+                    responseCode = "302",
+                    description = "Перенаправление на подписанную ссылку MinIO (если включено minio.presign)"
+            ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Файл не изменился (If-None-Match / If-Modified-Since)"
+            ),
+            @ApiResponse(
+                    responseCode = "416",
+                    description = "Запрошенный диапазон за пределами файла"
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Невалидный или отсутствующий путь.",
@@ -129,7 +260,7 @@ public class FileController {
             )
     })
     @GetMapping("/resource/download")
-    public ResponseEntity<StreamingResponseBody> downloadResource(@RequestParam(required = false) String path,
+    public ResponseEntity<?> downloadResource(@RequestParam(required = false) String path,
                                                                   HttpServletResponse response,
                                                                   HttpServletRequest request) {
         fileStorageService.createUserRootFolder(request);
@@ -137,7 +268,10 @@ public class FileController {
     }
 
     @Operation(
-            summary = "Поиск ресурса по всей системе"
+            summary = "Поиск ресурса по всей системе",
+            description = "Если включен индекс объектов, ищется часть имени без учета регистра и результаты всегда отдаются страницами. " +
+                    "Без индекса ищется точное имя без учета регистра: без limit и cursor возвращаются все совпадения, " +
+                    "с limit -- страница. Курсор следующей страницы возвращается в заголовке X-Next-Cursor."
     )
     @ApiResponses({
             @ApiResponse(
@@ -153,8 +287,19 @@ public class FileController {
     })
     @GetMapping("/resource/search")
     public ResponseEntity<List<StorageResourceDTO>> searchResource(
-            @Parameter(description = "Запрос на поиск", example = "test2") @RequestParam("query") String query, HttpServletRequest request) {
+            @Parameter(description = "Запрос на поиск", example = "test2") @RequestParam("query") String query,
+            @Parameter(description = "Размер страницы", example = "50") @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(description = "Курсор следующей страницы из заголовка X-Next-Cursor") @RequestParam(value = "cursor", required = false) String cursor,
+            HttpServletRequest request) {
         fileStorageService.createUserRootFolder(request);
-        return ResponseEntity.ok(fileStorageService.searchResource(request, query));
+        return toPageResponse(fileStorageService.searchResource(request, query, limit, cursor));
+    }
+
+    private static ResponseEntity<List<StorageResourceDTO>> toPageResponse(ResourcePageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 }
@@ -0,0 +1,152 @@
+package com.lostway.cloudfilestorage.controller;
+
+import com.lostway.cloudfilestorage.controller.dto.StorageJobDTO;
+import com.lostway.cloudfilestorage.exception.dto.ErrorResponseDTO;
+import com.lostway.cloudfilestorage.minio.StorageJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+@Tag(name = "Storage Jobs", description = "API для долгих операций над папками в фоне.")
+@RestController
+@RequestMapping("${api.url}/jobs")
+@RequiredArgsConstructor
+public class StorageJobController {
+    private final StorageJobService storageJobService;
+
+    @Operation(
+            summary = "Удаление файла/папки в фоне.",
+            description = "Ставит удаление в очередь и сразу возвращает задачу, ход которой можно опрашивать."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задача создана.",
+                    content = @Content(schema = @Schema(implementation = StorageJobDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Ресурс не найден.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/delete")
+    public ResponseEntity<StorageJobDTO> submitDelete(
+            @Parameter(description = "Путь к файлу/папке", example = "documents/") @RequestParam("path") String path,
+            HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(storageJobService.submitDelete(path, request));
+    }
+
+    @Operation(
+            summary = "Перемещение/переименование в фоне.",
+            description = "Пути проверяются сразу, перемещение выполняется в фоне. Отмененное перемещение папки продолжается повторным запросом с теми же путями."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задача создана.",
+                    content = @Content(schema = @Schema(implementation = StorageJobDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Невалидные пути.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/move")
+    public ResponseEntity<StorageJobDTO> submitMove(
+            @Parameter(description = "Текущий путь", example = "documents/") @RequestParam("from") String from,
+            @Parameter(description = "Новый путь", example = "archive/documents/") @RequestParam("to") String to,
+            HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(storageJobService.submitMove(from, to, request));
+    }
+
+    @Operation(
+            summary = "Сборка ZIP архива папки в фоне.",
+            description = "Архив сохраняется в хранилище, после завершения задачи его можно скачать по /jobs/{jobId}/result."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Задача создана.",
+                    content = @Content(schema = @Schema(implementation = StorageJobDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Папка не найдена.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping("/archive")
+    public ResponseEntity<StorageJobDTO> submitArchive(
+            @Parameter(description = "Путь к папке", example = "documents/") @RequestParam("path") String path,
+            HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(storageJobService.submitArchive(path, request));
+    }
+
+    @Operation(
+            summary = "Состояние задачи.",
+            description = "Статус и ход задачи: обработано объектов и байт (общий объем известен только для архивации)."
+    )
+    @GetMapping("/{jobId}")
+    public ResponseEntity<StorageJobDTO> getJob(@PathVariable UUID jobId, HttpServletRequest request) {
+        return ResponseEntity.ok(storageJobService.getJob(jobId, request));
+    }
+
+    @Operation(
+            summary = "Отмена задачи.",
+            description = "Задача в очереди отменяется сразу, выполняемая - в течение нескольких секунд. Уже сделанное не откатывается."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Отмена запрошена.",
+                    content = @Content(schema = @Schema(implementation = StorageJobDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Задача уже завершена.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<StorageJobDTO> cancel(@PathVariable UUID jobId, HttpServletRequest request) {
+        return ResponseEntity.ok(storageJobService.cancel(jobId, request));
+    }
+
+    @Operation(
+            summary = "Скачивание архива.",
+            description = "Отдает ZIP архив, собранный задачей архивации. Поддерживается Range для докачки."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Архив.",
+                    content = @Content(mediaType = "application/zip")
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Архив еще не готов.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<StreamingResponseBody> downloadResult(@PathVariable UUID jobId,
+                                                                HttpServletRequest request,
+                                                                HttpServletResponse response) {
+        return storageJobService.downloadResult(jobId, request, response);
+    }
+}
@@ -0,0 +1,114 @@
+package com.lostway.cloudfilestorage.controller;
+
+import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadSessionDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadSessionPartDTO;
+import com.lostway.cloudfilestorage.exception.dto.ErrorResponseDTO;
+import com.lostway.cloudfilestorage.minio.UploadSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@Tag(name = "Upload Sessions", description = "API для возобновляемой загрузки файлов частями.")
+@RestController
+@RequestMapping("${api.url}/upload-sessions")
+@RequiredArgsConstructor
+public class UploadSessionController {
+    private final UploadSessionService uploadSessionService;
+
+    @Operation(
+            summary = "Создание сессии загрузки.",
+            description = "Создает сессию, в которую затем загружаются пронумерованные части файла."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Сессия создана.",
+                    content = @Content(schema = @Schema(implementation = UploadSessionDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Файл с таким именем уже существует.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> createSession(
+            @Parameter(description = "Имя файла", example = "report.pdf") @RequestParam("fileName") String fileName,
+            HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.createSession(fileName, request));
+    }
+
+    @Operation(
+            summary = "Состояние сессии загрузки.",
+            description = "Возвращает уже полученные части, чтобы клиент мог продолжить загрузку после обрыва."
+    )
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionDTO> getSession(@PathVariable UUID sessionId, HttpServletRequest request) {
+        return ResponseEntity.ok(uploadSessionService.getSession(sessionId, request));
+    }
+
+    @Operation(
+            summary = "Загрузка части файла.",
+            description = "Части можно загружать в любом порядке и параллельно. Все части, кроме последней, должны быть не меньше 5MB."
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Часть загружена.",
+                    content = @Content(schema = @Schema(implementation = UploadSessionPartDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Часть или файл целиком превышает допустимый размер.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Сессия уже закрыта.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            ),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "На сервере слишком много одновременно загружаемых частей, повторите позже.",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))
+            )
+    })
+    @PutMapping(value = "/{sessionId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionPartDTO> uploadPart(@PathVariable UUID sessionId,
+                                                           @PathVariable int partNumber,
+                                                           HttpServletRequest request) {
+        return ResponseEntity.ok(uploadSessionService.uploadPart(sessionId, partNumber, request));
+    }
+
+    @Operation(
+            summary = "Подтверждение загрузки.",
+            description = "Собирает файл из загруженных частей и отправляет его на обработку."
+    )
+    @PostMapping("/{sessionId}/commit")
+    public ResponseEntity<UploadFileResponseDTO> commit(@PathVariable UUID sessionId, HttpServletRequest request) {
+        return ResponseEntity.ok(uploadSessionService.commit(sessionId, request));
+    }
+
+    @Operation(
+            summary = "Отмена сессии загрузки.",
+            description = "Удаляет загруженные части."
+    )
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> abort(@PathVariable UUID sessionId, HttpServletRequest request) {
+        uploadSessionService.abort(sessionId, request);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,4 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+public record BatchUploadItemDTO(String fileName, boolean uploaded, String message) {
+}
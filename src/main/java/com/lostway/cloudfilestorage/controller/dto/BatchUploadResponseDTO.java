@@ -0,0 +1,6 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import java.util.List;
+
+public record BatchUploadResponseDTO(String email, int uploaded, int failed, List<BatchUploadItemDTO> results) {
+}
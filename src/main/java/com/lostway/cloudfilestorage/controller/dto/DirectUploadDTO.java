@@ -0,0 +1,8 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+public record DirectUploadDTO(UUID sessionId, String url, Map<String, String> formData, Instant expiresAt) {
+}
@@ -0,0 +1,6 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import java.time.Instant;
+
+public record PresignedUrlDTO(String url, Instant expiresAt) {
+}
@@ -0,0 +1,11 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import java.util.List;
+
+/**
+ * Страница ресурсов
+ *
+ * @param nextCursor курсор следующей страницы (null --> страница последняя)
+ */
+public record ResourcePageDTO(List<StorageResourceDTO> items, String nextCursor) {
+}
@@ -0,0 +1,23 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import com.lostway.cloudfilestorage.repository.entity.StorageJobStatus;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobType;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record StorageJobDTO(UUID jobId,
+                            StorageJobType type,
+                            StorageJobStatus status,
+                            String path,
+                            String targetPath,
+                            long objectsDone,
+                            Long objectsTotal,
+                            long bytesDone,
+                            Long bytesTotal,
+                            boolean cancelRequested,
+                            String error,
+                            Instant createdAt,
+                            Instant startedAt,
+                            Instant finishedAt) {
+}
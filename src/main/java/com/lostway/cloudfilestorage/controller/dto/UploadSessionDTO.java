@@ -0,0 +1,9 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+public record UploadSessionDTO(UUID sessionId, String fileName, UploadSessionStatus status, List<UploadSessionPartDTO> parts) {
+}
@@ -0,0 +1,4 @@
+package com.lostway.cloudfilestorage.controller.dto;
+
+public record UploadSessionPartDTO(int partNumber, long size, String etag) {
+}
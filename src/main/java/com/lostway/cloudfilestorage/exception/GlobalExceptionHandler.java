@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.lostway.cloudfilestorage.exception.dto.*;
 import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -32,6 +33,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(e.getMessage()));
     }
 
+    @ExceptionHandler(UploadSessionClosedException.class)
+    public ResponseEntity<ErrorResponseDTO> handleUploadSessionClosedException(UploadSessionClosedException e) {
+        throwLogError(e);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(e.getMessage()));
+    }
+
+    @ExceptionHandler({StorageJobStateException.class, OperationCancelledException.class})
+    public ResponseEntity<ErrorResponseDTO> handleStorageJobStateException(RuntimeException e) {
+        throwLogError(e);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(e.getMessage()));
+    }
+
     @ExceptionHandler(UserAlreadyExistsException.class)
     public ResponseEntity<ErrorResponseDTO> handleUserAlreadyExistsException(UserAlreadyExistsException e) {
         throwLogError(e);
@@ -60,6 +73,14 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDTO(e.getMessage()));
     }
 
+    @ExceptionHandler(StreamingCapacityExceededException.class)
+    public ResponseEntity<ErrorResponseDTO> handleStreamingCapacityExceededException(StreamingCapacityExceededException e) {
+        throwLogError(e);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponseDTO(e.getMessage()));
+    }
+
     @ExceptionHandler(FileStorageException.class)
     public ResponseEntity<ErrorResponseDTO> handleFileStorageException(FileStorageException e) {
         throwLogError(e);
@@ -1,6 +1,10 @@
 package com.lostway.cloudfilestorage.exception.dto;
 
 public class FileStorageException extends RuntimeException {
+    public FileStorageException(String message) {
+        super(message);
+    }
+
     public FileStorageException(String message, Exception e) {
         super(message, e);
     }
@@ -0,0 +1,7 @@
+package com.lostway.cloudfilestorage.exception.dto;
+
+public class OperationCancelledException extends RuntimeException {
+    public OperationCancelledException(String message) {
+        super(message);
+    }
+}
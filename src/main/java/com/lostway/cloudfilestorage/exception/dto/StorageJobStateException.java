@@ -0,0 +1,7 @@
+package com.lostway.cloudfilestorage.exception.dto;
+
+public class StorageJobStateException extends RuntimeException {
+    public StorageJobStateException(String message) {
+        super(message);
+    }
+}
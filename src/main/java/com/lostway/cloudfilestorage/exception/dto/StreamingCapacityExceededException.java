@@ -0,0 +1,7 @@
+package com.lostway.cloudfilestorage.exception.dto;
+
+public class StreamingCapacityExceededException extends RuntimeException {
+    public StreamingCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.lostway.cloudfilestorage.exception.dto;
+
+public class UploadSessionClosedException extends RuntimeException {
+    public UploadSessionClosedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,217 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.cloudfilestorage.exception.dto.OperationCancelledException;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Удаление большого количества объектов через multi-delete (DeleteObjects, до 1000 ключей за запрос).
+ * Пакеты отправляются параллельно (не больше parallel-batches одновременно), пока листинг продолжается.
+ * Ошибка по отдельному ключу или пакету не прерывает удаление: ошибки собираются в отчет.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchObjectRemover {
+
+    /**
+     * Максимальное количество ключей в одном запросе DeleteObjects (ограничение S3 API)
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Сколько путей с ошибками сохраняется в отчете (общее количество ошибок считается всегда)
+     */
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final MinioClient minioClient;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.delete.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${minio.delete.parallel-batches:4}")
+    private int parallelBatches;
+
+    /**
+     * Итог удаления
+     *
+     * @param requested     сколько объектов отправлено на удаление
+     * @param failed        сколько объектов удалить не удалось
+     * @param failedObjects первые пути, которые не удалось удалить, с причиной
+     */
+    public record RemovalReport(long requested, long failed, List<String> failedObjects) {
+
+        public long removed() {
+            return requested - failed;
+        }
+    }
+
+    /**
+     * Удаление всех объектов с префиксом (папка вместе с содержимым)
+     *
+     * @param prefix путь до папки
+     * @throws FileStorageException > не удалось получить список объектов (уже отправленные пакеты дожидаются завершения)
+     */
+    public RemovalReport removeAllUnder(String prefix) {
+        return removeAllUnder(prefix, OperationProgress.NONE);
+    }
+
+    /**
+     * Удаление всех объектов с префиксом с отчетом о ходе после каждого пакета.
+     * Отмена проверяется перед отправкой каждого пакета
+     *
+     * @param prefix   путь до папки
+     * @param progress ход операции
+     * @throws FileStorageException        > не удалось получить список объектов
+     * @throws OperationCancelledException > запрошена отмена, уже отправленные пакеты удалены
+     */
+    public RemovalReport removeAllUnder(String prefix, OperationProgress progress) {
+        Iterable<Result<Item>> listing = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build());
+
+        return removeAll(listing, result -> {
+            try {
+                Item item = result.get();
+                return new Target(item.objectName(), item.size());
+            } catch (Exception e) {
+                throw new FileStorageException("Ошибка при получении списка объектов папки " + prefix, e);
+            }
+        }, progress);
+    }
+
+    /**
+     * Удаление объектов по списку путей
+     *
+     * @param objectNames полные пути объектов
+     */
+    public RemovalReport removeAll(Iterable<String> objectNames) {
+        return removeAll(objectNames, objectName -> new Target(objectName, 0), OperationProgress.NONE);
+    }
+
+    /**
+     * Объект на удаление. Размер нужен только для отчета о ходе (0, если неизвестен)
+     */
+    private record Target(String objectName, long size) {
+    }
+
+    private <T> RemovalReport removeAll(Iterable<T> source, Function<T, Target> extractor, OperationProgress progress) {
+        int size = Math.clamp(batchSize, 1, MAX_BATCH_SIZE);
+        long requested = 0;
+        boolean cancelled = false;
+        AtomicLong failed = new AtomicLong();
+        List<String> failedObjects = Collections.synchronizedList(new ArrayList<>());
+        Semaphore inFlight = new Semaphore(parallelBatches);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Target> batch = new ArrayList<>(size);
+            for (T item : source) {
+                batch.add(extractor.apply(item));
+                if (batch.size() == size) {
+                    if (progress.isCancelled()) {
+                        cancelled = true;
+                        break;
+                    }
+                    submit(batch, executor, inFlight, failed, failedObjects, progress);
+                    requested += batch.size();
+                    batch = new ArrayList<>(size);
+                }
+            }
+            cancelled = cancelled || progress.isCancelled();
+            if (!cancelled && !batch.isEmpty()) {
+                submit(batch, executor, inFlight, failed, failedObjects, progress);
+                requested += batch.size();
+            }
+        }
+
+        if (cancelled) {
+            log.info("Пакетное удаление отменено: отправлено {}, ошибок {}", requested, failed.get());
+            throw new OperationCancelledException("Удаление отменено, удалено объектов: " + (requested - failed.get()));
+        }
+
+        RemovalReport report = new RemovalReport(requested, failed.get(), List.copyOf(failedObjects));
+        log.debug("Пакетное удаление: отправлено {}, удалено {}, ошибок {}", report.requested(), report.removed(), report.failed());
+        return report;
+    }
+
+    /**
+     * Отправка пакета. Если все слоты заняты, листинг ждет, пока освободится один из пакетов
+     */
+    private void submit(List<Target> batch, ExecutorService executor, Semaphore inFlight,
+                        AtomicLong failed, List<String> failedObjects, OperationProgress progress) {
+        inFlight.acquireUninterruptibly();
+        CompletableFuture.runAsync(() -> {
+            try {
+                int batchFailed = removeBatch(batch, failedObjects);
+                failed.addAndGet(batchFailed);
+                progress.onObjectsDone(batch.size() - batchFailed, batch.stream().mapToLong(Target::size).sum());
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * @return сколько объектов пакета удалить не удалось
+     */
+    private int removeBatch(List<Target> batch, List<String> failedObjects) {
+        List<DeleteObject> objects = batch.stream()
+                .map(target -> new DeleteObject(target.objectName()))
+                .toList();
+
+        int batchFailed = 0;
+        try {
+            Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .objects(objects)
+                            .build());
+
+            for (Result<DeleteError> result : errors) {
+                DeleteError error = result.get();
+                batchFailed++;
+                addFailure(failedObjects, error.objectName() + ": " + error.message());
+            }
+        } catch (Exception e) {
+            String first = batch.getFirst().objectName();
+            log.error("Не удалось удалить пакет из {} объектов начиная с {}", batch.size(), first, e);
+            batchFailed = batch.size();
+            addFailure(failedObjects, first + " (и еще " + (batch.size() - 1) + "): " + e.getMessage());
+        }
+        return batchFailed;
+    }
+
+    private static void addFailure(List<String> failedObjects, String failure) {
+        synchronized (failedObjects) {
+            if (failedObjects.size() < MAX_REPORTED_FAILURES) {
+                failedObjects.add(failure);
+            }
+        }
+    }
+}
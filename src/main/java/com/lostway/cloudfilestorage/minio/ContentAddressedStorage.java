@@ -0,0 +1,403 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.BadFormatException;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.cloudfilestorage.exception.dto.FileUploadSizeException;
+import com.lostway.cloudfilestorage.exception.dto.ResourceInStorageAlreadyExists;
+import com.lostway.cloudfilestorage.repository.ContentBlobRepository;
+import com.lostway.cloudfilestorage.repository.FileReferenceRepository;
+import com.lostway.cloudfilestorage.repository.entity.FileReference;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
+
+/**
+ * Хранилище с дедупликацией по содержимому. Одинаковые файлы хранятся в MinIO один раз (blob),
+ * а пути пользователей ссылаются на blob через таблицу file_references со счетчиком ссылок.
+ * Запись в хранилище пропускается полностью, если хеш известен до начала загрузки:
+ * для файла, который уже лежит на локальном диске, хеш считается заранее отдельным проходом,
+ * а при потоковой загрузке клиент может заявить SHA-256 (заявленный хеш сверяется с фактическим).
+ * Если хеш заранее неизвестен, он считается во время загрузки: части уже записаны в MinIO,
+ * и при найденном дубликате multipart загрузка только отменяется, не создавая объект.
+ * Blob-ы без ссылок удаляются планировщиком.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContentAddressedStorage {
+
+    private static final String BLOBS_FOLDER = "blobs/";
+
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
+    private final MinioClient minioClient;
+    private final MultipartStreamUploader multipartStreamUploader;
+    private final ContentBlobRepository contentBlobRepository;
+    private final FileReferenceRepository fileReferenceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${minio.upload.max-file-size:1GB}")
+    private DataSize maxFileSize;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Загрузка файла, который уже лежит на локальном диске. Сначала отдельным проходом считается хеш:
+     * если blob с таким хешем уже есть, добавляется только ссылка и MinIO не используется вовсе.
+     *
+     * @param source      источник содержимого, читается один или два раза
+     * @param objectName  путь пользователя до файла
+     * @param contentType тип содержимого
+     * @return размер файла
+     * @throws ResourceInStorageAlreadyExists > по этому пути уже есть файл
+     */
+    public long store(InputStreamSource source, String objectName, String contentType) throws IOException {
+        MessageDigest digest = newSha256Digest();
+        long size;
+        try (InputStream in = source.getInputStream()) {
+            size = digestWithoutStoring(in, digest);
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+
+        if (addReference(sha256, objectName, size)) {
+            log.info("Файл '{}' сохранен как ссылка на существующий blob {}, запись в хранилище пропущена", objectName, sha256);
+            return size;
+        }
+
+        try (InputStream in = source.getInputStream()) {
+            return store(in, objectName, contentType, sha256);
+        }
+    }
+
+    /**
+     * Потоковая загрузка файла с дедупликацией, хеш считается во время загрузки.
+     * Если blob с таким хешем уже есть, загруженные части отменяются и увеличивается счетчик ссылок
+     *
+     * @param in          поток с содержимым файла
+     * @param objectName  путь пользователя до файла
+     * @param contentType тип содержимого
+     * @return размер файла
+     * @throws ResourceInStorageAlreadyExists > по этому пути уже есть файл
+     */
+    public long store(InputStream in, String objectName, String contentType) {
+        return store(in, objectName, contentType, null);
+    }
+
+    /**
+     * Потоковая загрузка файла с заявленным клиентом SHA-256. Если blob с таким хешем уже есть, поток только
+     * дочитывается для сверки хеша, а в хранилище ничего не пишется. Иначе файл загружается как обычно,
+     * и объект не создается, если фактический хеш не совпал с заявленным
+     *
+     * @param declaredSha256 SHA-256 содержимого в hex (null --> хеш заранее неизвестен)
+     * @return размер файла
+     * @throws BadFormatException             > хеш некорректен или не совпадает с содержимым
+     * @throws ResourceInStorageAlreadyExists > по этому пути уже есть файл
+     */
+    public long store(InputStream in, String objectName, String contentType, String declaredSha256) {
+        String expectedSha256 = normalizeSha256(declaredSha256);
+        MessageDigest digest = newSha256Digest();
+
+        if (expectedSha256 != null && contentBlobRepository.existsById(expectedSha256)) {
+            long size = digestWithoutStoring(in, digest);
+            verifySha256(expectedSha256, HexFormat.of().formatHex(digest.digest()));
+
+            if (!addReference(expectedSha256, objectName, size)) {
+                throw new FileStorageException("Blob был удален во время загрузки, повторите загрузку");
+            }
+            log.info("Файл '{}' сохранен как ссылка на существующий blob {}, запись в хранилище пропущена", objectName, expectedSha256);
+            return size;
+        }
+
+        String blobKey = BLOBS_FOLDER + UUID.randomUUID();
+        AtomicReference<String> hash = new AtomicReference<>();
+        AtomicBoolean mismatch = new AtomicBoolean();
+
+        var result = multipartStreamUploader.upload(new DigestInputStream(in, digest), blobKey, contentType, () -> {
+            hash.set(HexFormat.of().formatHex(digest.digest()));
+            if (expectedSha256 != null && !expectedSha256.equals(hash.get())) {
+                mismatch.set(true);
+                return false;
+            }
+            return !contentBlobRepository.existsById(hash.get());
+        });
+        if (mismatch.get()) {
+            verifySha256(expectedSha256, hash.get());
+        }
+        String sha256 = hash.get();
+
+        try {
+            boolean blobCreated = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                boolean created = result.stored()
+                        && contentBlobRepository.insertIfAbsent(sha256, blobKey, result.size()) == 1;
+
+                if (contentBlobRepository.changeRefCount(sha256, 1) == 0) {
+                    throw new FileStorageException("Blob был удален во время загрузки, повторите загрузку");
+                }
+
+                fileReferenceRepository.insert(
+                        objectName, getParentFolders(objectName), getNameFromPath(objectName), sha256, result.size());
+                return created;
+            }));
+
+            if (result.stored() && !blobCreated) {
+                log.debug("Такой же blob загружен параллельно, копия '{}' будет удалена", blobKey);
+                removeBlobObject(blobKey);
+            }
+            log.info("Файл '{}' сохранен как blob {} (новый: {})", objectName, sha256, blobCreated);
+            return result.size();
+        } catch (DataIntegrityViolationException e) {
+            removeUnusedBlobObject(result.stored(), blobKey);
+            throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+        } catch (RuntimeException e) {
+            removeUnusedBlobObject(result.stored(), blobKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Поиск ссылки пользователя на blob
+     */
+    public Optional<FileReference> findReference(String objectName) {
+        return enabled ? fileReferenceRepository.findById(objectName) : Optional.empty();
+    }
+
+    /**
+     * Файлы (ссылки на blob-ы), которые лежат непосредственно в папке, в порядке ключей хранилища
+     *
+     * @param afterObjectName путь, после которого начинать (null --> с начала папки)
+     * @param limit           максимальное количество ссылок
+     */
+    public List<FileReference> findChildren(String folderPath, String afterObjectName, int limit) {
+        return enabled
+                ? fileReferenceRepository.findChildrenAfter(folderPath, afterObjectName == null ? "" : afterObjectName, limit)
+                : List.of();
+    }
+
+    /**
+     * Все файлы (ссылки на blob-ы) в папке рекурсивно
+     */
+    public List<FileReference> findAllUnder(String folderPath) {
+        return enabled ? fileReferenceRepository.findAllUnder(toPrefixLikePattern(folderPath)) : List.of();
+    }
+
+    /**
+     * Поиск файлов (ссылок на blob-ы) по имени без учета регистра
+     */
+    public List<FileReference> findAllUnderByName(String folderPath, String fileName) {
+        return enabled
+                ? fileReferenceRepository.findAllUnderByName(toPrefixLikePattern(folderPath), fileName)
+                : List.of();
+    }
+
+    /**
+     * Ключ объекта в MinIO, где на самом деле лежит содержимое файла пользователя
+     *
+     * @param objectName путь пользователя до файла
+     * @return ключ blob-а, если файл хранится с дедупликацией, иначе сам путь
+     */
+    public String resolveObjectKey(String objectName) {
+        if (!enabled) {
+            return objectName;
+        }
+        return fileReferenceRepository.findBlobKey(objectName).orElse(objectName);
+    }
+
+    /**
+     * Удаление ссылки на blob. Сам blob не трогается, уменьшается только счетчик ссылок
+     *
+     * @return true --> файл хранился с дедупликацией и ссылка удалена<p>
+     * false --> ссылки нет, файл нужно удалять из MinIO напрямую
+     */
+    public boolean release(String objectName) {
+        if (!enabled) {
+            return false;
+        }
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> fileReferenceRepository.findById(objectName)
+                .map(reference -> {
+                    fileReferenceRepository.delete(reference);
+                    contentBlobRepository.changeRefCount(reference.getSha256(), -1);
+                    return true;
+                })
+                .orElse(false)));
+    }
+
+    /**
+     * Удаление всех ссылок в папке рекурсивно
+     *
+     * @return количество удаленных ссылок
+     */
+    public int releaseAllUnder(String folderPath) {
+        if (!enabled) {
+            return 0;
+        }
+
+        Integer released = transactionTemplate.execute(status -> {
+            String pattern = toPrefixLikePattern(folderPath);
+            Map<String, Long> referencesByBlob = fileReferenceRepository.findAllUnder(pattern).stream()
+                    .collect(Collectors.groupingBy(FileReference::getSha256, Collectors.counting()));
+
+            referencesByBlob.forEach((sha256, count) -> contentBlobRepository.changeRefCount(sha256, -count.intValue()));
+            return fileReferenceRepository.deleteAllUnder(pattern);
+        });
+        return released == null ? 0 : released;
+    }
+
+    /**
+     * Перемещение ссылки на blob. Сам blob не копируется
+     *
+     * @return true --> файл хранился с дедупликацией и ссылка перемещена
+     */
+    public boolean move(String oldObjectName, String newObjectName) {
+        if (!enabled) {
+            return false;
+        }
+
+        Integer moved = transactionTemplate.execute(status -> fileReferenceRepository.move(
+                oldObjectName, newObjectName, getParentFolders(newObjectName), getNameFromPath(newObjectName)));
+        return moved != null && moved > 0;
+    }
+
+    /**
+     * Перемещение всех ссылок из одной папки в другую
+     *
+     * @return количество перемещенных ссылок
+     */
+    public int moveAllUnder(String oldFolderPath, String newFolderPath) {
+        if (!enabled) {
+            return 0;
+        }
+
+        Integer moved = transactionTemplate.execute(status ->
+                fileReferenceRepository.moveAllUnder(oldFolderPath, newFolderPath, toPrefixLikePattern(oldFolderPath)));
+        return moved == null ? 0 : moved;
+    }
+
+    /**
+     * Ссылка на уже существующий blob без записи в хранилище
+     *
+     * @return true --> ссылка добавлена<p>
+     * false --> blob-а с таким хешем нет
+     * @throws ResourceInStorageAlreadyExists > по этому пути уже есть файл
+     */
+    private boolean addReference(String sha256, String objectName, long size) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (contentBlobRepository.changeRefCount(sha256, 1) == 0) {
+                    return false;
+                }
+                fileReferenceRepository.insert(
+                        objectName, getParentFolders(objectName), getNameFromPath(objectName), sha256, size);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+        }
+    }
+
+    /**
+     * Чтение потока до конца только ради хеша, с тем же ограничением размера, что и при загрузке
+     *
+     * @return количество прочитанных байт
+     * @throws FileUploadSizeException > файл превышает допустимый размер
+     */
+    private long digestWithoutStoring(InputStream in, MessageDigest digest) {
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        long total = 0;
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxFileSize.toBytes()) {
+                    throw new FileUploadSizeException("Размер файла превышает допустимый: " + maxFileSize);
+                }
+                digest.update(buffer, 0, read);
+            }
+            return total;
+        } catch (IOException e) {
+            throw new FileStorageException("Ошибка при чтении содержимого файла", e);
+        }
+    }
+
+    private static String normalizeSha256(String sha256) {
+        if (sha256 == null || sha256.isBlank()) {
+            return null;
+        }
+        if (!SHA256_HEX.matcher(sha256).matches()) {
+            throw new BadFormatException("Некорректный SHA-256 содержимого: " + sha256);
+        }
+        return sha256.toLowerCase();
+    }
+
+    private static void verifySha256(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new BadFormatException("SHA-256 содержимого не совпадает с заявленным: " + expected);
+        }
+    }
+
+    private void removeUnusedBlobObject(boolean stored, String blobKey) {
+        if (stored && !contentBlobRepository.existsByObjectKey(blobKey)) {
+            removeBlobObject(blobKey);
+        }
+    }
+
+    /**
+     * Удаление объекта blob-а из MinIO
+     *
+     * @param blobKey ключ blob-а
+     */
+    public void removeBlobObject(String blobKey) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(blobKey)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Не удалось удалить неиспользуемый blob '{}'", blobKey, e);
+        }
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new FileStorageException("SHA-256 недоступен", e);
+        }
+    }
+}
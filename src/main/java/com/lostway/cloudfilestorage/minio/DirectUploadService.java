@@ -0,0 +1,239 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.controller.dto.DirectUploadDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
+import com.lostway.cloudfilestorage.exception.dto.*;
+import com.lostway.cloudfilestorage.repository.UploadSessionRepository;
+import com.lostway.cloudfilestorage.repository.entity.UploadSession;
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionStatus;
+import com.lostway.cloudfilestorage.security.PrincipalResolver;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.UUID;
+
+import static com.lostway.cloudfilestorage.utils.FileSignatureUtils.SNIFF_SIZE;
+import static com.lostway.cloudfilestorage.utils.FileSignatureUtils.checkSignature;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
+
+/**
+ * Загрузка файла напрямую в MinIO, минуя сервис. Клиент получает подписанную политику загрузки формой,
+ * загружает файл во временный ключ и подтверждает загрузку. При подтверждении сервис проверяет объект
+ * (размер и сигнатуру формата по первым байтам), переносит его на место внутри rootFolder пользователя
+ * и сохраняет информацию о файле. Байты файла через сервис не проходят.
+ * <p>
+ * Временный ключ нужен, чтобы клиент не мог по той же политике перезаписать уже проверенный файл.
+ * Сессии хранятся в upload_sessions без uploadId.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+
+    private static final String STAGING_FOLDER = "direct-uploads/";
+
+    private final MinioClient minioClient;
+    private final PresignedUrlService presignedUrlService;
+    private final FileStorageService fileStorageService;
+    private final UploadMetadataService uploadMetadataService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionService uploadSessionService;
+    private final StorageObjectIndex storageObjectIndex;
+    private final StorageMetadataCache storageMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final PrincipalResolver principalResolver;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.upload.max-file-size:1GB}")
+    private DataSize maxFileSize;
+
+    /**
+     * Создание сессии прямой загрузки и выдача подписанной политики
+     *
+     * @param fileName имя файла, дубликат определяется по имени
+     * @return адрес и поля формы для загрузки в хранилище
+     * @throws ResourceInStorageAlreadyExists > файл уже существует в этой папке
+     */
+    public DirectUploadDTO createUpload(String fileName, HttpServletRequest request) {
+        String email = principalResolver.resolve(request).email();
+
+        fileName = getNameFromPath(fileName);
+        String rootFolder = getRootFolder(request, principalResolver);
+        String objectName = rootFolder + fileName;
+
+        ContentType fileType = fileStorageService.validateUploadPath(objectName, fileName);
+        if (fileStorageService.isFileExists(objectName)) {
+            throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+        }
+
+        UploadSession session = UploadSession.builder()
+                .sessionId(UUID.randomUUID())
+                .ownerFolder(rootFolder)
+                .objectName(objectName)
+                .fileName(fileName)
+                .contentType(fileType)
+                .uploaderEmail(email)
+                .status(UploadSessionStatus.ACTIVE)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+        uploadSessionRepository.save(session);
+        log.info("Создана сессия прямой загрузки {} для '{}'", session.getSessionId(), objectName);
+
+        return presignedUrlService.presignUpload(
+                getStagingKey(session), getMimeType(fileType), maxFileSize.toBytes(), session.getSessionId());
+    }
+
+    /**
+     * Подтверждение прямой загрузки: проверка загруженного объекта, перенос на место и сохранение информации о файле
+     *
+     * @return Информация о созданном файле
+     * @throws FileStorageNotFoundException   > файл еще не загружен в хранилище
+     * @throws BadFormatException             > содержимое не соответствует формату
+     * @throws ResourceInStorageAlreadyExists > файл с таким именем появился за время загрузки
+     */
+    public UploadFileResponseDTO complete(UUID sessionId, HttpServletRequest request) {
+        UploadSession session = getActiveUserUpload(sessionId, request);
+        String stagingKey = getStagingKey(session);
+        long fileSize = statStagingObject(stagingKey).size();
+
+        try {
+            if (fileSize > maxFileSize.toBytes()) {
+                throw new FileUploadSizeException("Размер файла превышает допустимый: " + maxFileSize);
+            }
+            checkSignature(readHead(stagingKey, fileSize), session.getContentType());
+            copyToUserFolder(stagingKey, session.getObjectName());
+        } catch (RuntimeException e) {
+            removeStagingObject(session);
+            uploadSessionService.markClosed(session, UploadSessionStatus.ABORTED);
+            throw e;
+        }
+        removeStagingObject(session);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                uploadMetadataService.saveUploadMetadata(session.getFileName(), session.getContentType(), fileSize, session.getUploaderEmail());
+                session.setStatus(UploadSessionStatus.COMMITTED);
+                session.setUpdatedAt(Instant.now());
+                uploadSessionRepository.save(session);
+            });
+        } catch (Exception e) {
+            log.error("Не удалось сохранить информацию о файле прямой загрузки {}", sessionId, e);
+            fileStorageService.deleteFile(session.getObjectName());
+            uploadSessionService.markClosed(session, UploadSessionStatus.ABORTED);
+            throw new FileStorageException("Не удалось загрузить файл", e);
+        }
+
+        storageObjectIndex.recordFile(session.getObjectName(), fileSize, null);
+        storageMetadataCache.invalidate(session.getObjectName());
+        log.info("Прямая загрузка {} завершена: '{}', {} байт", sessionId, session.getObjectName(), fileSize);
+        return new UploadFileResponseDTO("Ваш документ принят! Отчет будет направлен на почту", session.getUploaderEmail());
+    }
+
+    /**
+     * Удаление временного объекта сессии (если клиент успел его загрузить)
+     */
+    public void removeStagingObject(UploadSession session) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(getStagingKey(session))
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Не удалось удалить временный объект сессии {}", session.getSessionId(), e);
+        }
+    }
+
+    private StatObjectResponse statStagingObject(String stagingKey) {
+        try {
+            return minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(stagingKey)
+                            .build()
+            );
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new FileStorageNotFoundException("Файл еще не загружен в хранилище");
+            }
+            throw new FileStorageException("Ошибка при проверке загруженного файла", e);
+        } catch (Exception e) {
+            throw new FileStorageException("Ошибка при проверке загруженного файла", e);
+        }
+    }
+
+    /**
+     * Чтение только первых байт объекта для проверки сигнатуры
+     */
+    private byte[] readHead(String stagingKey, long fileSize) {
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(stagingKey)
+                        .offset(0L)
+                        .length(Math.min(SNIFF_SIZE, fileSize))
+                        .build())) {
+            return in.readAllBytes();
+        } catch (Exception e) {
+            throw new FileStorageException("Ошибка при чтении загруженного файла", e);
+        }
+    }
+
+    /**
+     * Копирование внутри хранилища на место файла пользователя. Копирование условное: существующий файл не перезаписывается
+     */
+    private void copyToUserFolder(String stagingKey, String objectName) {
+        try {
+            minioClient.copyObject(
+                    CopyObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .source(CopySource.builder()
+                                    .bucket(bucketName)
+                                    .object(stagingKey)
+                                    .build())
+                            .headers(CREATE_IF_ABSENT_HEADERS)
+                            .build()
+            );
+        } catch (Exception e) {
+            if (isObjectAlreadyExistsError(e)) {
+                throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+            }
+            throw new FileStorageException("Не удалось перенести загруженный файл", e);
+        }
+    }
+
+    /**
+     * Сессию может использовать только создавший ее пользователь (контролируется rootFolder)
+     */
+    private UploadSession getActiveUserUpload(UUID sessionId, HttpServletRequest request) {
+        String rootFolder = getRootFolder(request, principalResolver);
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .filter(UploadSessionService::isDirectUpload)
+                .filter(found -> found.getOwnerFolder().equals(rootFolder))
+                .orElseThrow(() -> new FileStorageNotFoundException("Сессия загрузки не найдена"));
+
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            throw new UploadSessionClosedException("Сессия загрузки уже закрыта: " + session.getStatus());
+        }
+        return session;
+    }
+
+    private static String getStagingKey(UploadSession session) {
+        return STAGING_FOLDER + session.getSessionId();
+    }
+}
@@ -1,20 +1,25 @@
 package com.lostway.cloudfilestorage.minio;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lostway.cloudfilestorage.controller.dto.BatchUploadItemDTO;
+import com.lostway.cloudfilestorage.controller.dto.BatchUploadResponseDTO;
+import com.lostway.cloudfilestorage.controller.dto.PresignedUrlDTO;
+import com.lostway.cloudfilestorage.controller.dto.ResourcePageDTO;
 import com.lostway.cloudfilestorage.controller.dto.StorageAnswerDTO;
 import com.lostway.cloudfilestorage.controller.dto.StorageFolderAnswerDTO;
 import com.lostway.cloudfilestorage.controller.dto.StorageResourceDTO;
 import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
 import com.lostway.cloudfilestorage.exception.dto.*;
-import com.lostway.cloudfilestorage.mapper.KafkaMapper;
-import com.lostway.cloudfilestorage.repository.OutboxKafkaRepository;
-import com.lostway.cloudfilestorage.repository.UpdateFileRepository;
-import com.lostway.cloudfilestorage.repository.entity.OutboxKafka;
-import com.lostway.cloudfilestorage.repository.entity.UpdateFile;
-import com.lostway.jwtsecuritylib.JwtUtil;
-import com.lostway.jwtsecuritylib.kafka.FileUploadedEvent;
+import com.lostway.cloudfilestorage.repository.entity.FileReference;
+import com.lostway.cloudfilestorage.repository.entity.StorageObject;
+import com.lostway.cloudfilestorage.security.PrincipalResolver;
+import com.lostway.cloudfilestorage.streaming.PartialContentResponder;
+import com.lostway.cloudfilestorage.streaming.StreamingLimiter;
+import com.lostway.cloudfilestorage.streaming.StreamingLimiter.StreamType;
+import com.lostway.cloudfilestorage.streaming.ZipArchiveStreamer;
+import com.lostway.cloudfilestorage.streaming.ZipArchiveStreamer.ZipSource;
+import com.lostway.cloudfilestorage.utils.PathCodec;
 import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
-import com.lostway.jwtsecuritylib.kafka.enums.FileStatus;
-import io.jsonwebtoken.JwtException;
 import io.minio.*;
 import io.minio.errors.ErrorResponseException;
 import io.minio.messages.Item;
@@ -25,27 +30,29 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
-import java.util.regex.Pattern;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import static com.lostway.cloudfilestorage.utils.FileSignatureUtils.checkSignature;
 import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
 
 @Service
@@ -54,14 +61,47 @@ import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
 public class FileStorageService {
 
     private final MinioClient minioClient;
-    private final JwtUtil jwtUtil;
-    private final UpdateFileRepository updateFileRepository;
-    private final KafkaMapper kafkaMapper;
-    private final OutboxKafkaRepository outboxKafkaRepository;
+    private final PrincipalResolver principalResolver;
+    private final MultipartStreamUploader multipartStreamUploader;
+    private final BatchObjectRemover batchObjectRemover;
+    private final FolderMover folderMover;
+    private final UploadMetadataService uploadMetadataService;
+    private final ContentAddressedStorage contentAddressedStorage;
+    private final StreamingLimiter streamingLimiter;
+    private final PartialContentResponder partialContentResponder;
+    private final ZipArchiveStreamer zipArchiveStreamer;
+    private final PresignedUrlService presignedUrlService;
+    private final StorageObjectIndex storageObjectIndex;
+    private final ObjectMapper objectMapper;
+    private final StorageMetadataCache storageMetadataCache;
+    private final UserProvisioningRegistry userProvisioningRegistry;
 
     @Value("${minio.bucket.name}")
     private String bucketName;
 
+    @Value("${minio.upload.batch.max-files:500}")
+    private int batchMaxFiles;
+
+    @Value("${minio.upload.batch.parallelism:8}")
+    private int batchParallelism;
+
+    @Value("${search.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${search.max-limit:500}")
+    private int maxPageSize;
+
+    @Value("${directory.default-limit:1000}")
+    private int directoryDefaultPageSize;
+
+    @Value("${directory.max-limit:5000}")
+    private int directoryMaxPageSize;
+
+    /**
+     * Максимальное количество ключей в одном ответе листинга S3
+     */
+    private static final int MAX_LIST_KEYS = 1000;
+
 
     /**
      * Инициализация бакета, если он еще не создан
@@ -90,13 +130,13 @@ public class FileStorageService {
      */
     public StorageResourceDTO getInformationAboutResource(String path, HttpServletRequest request) {
         try {
-            path = getFullUserPath(path, request, jwtUtil);
+            path = getFullUserPath(path, request, principalResolver);
             validateResourcePath(path);
             String folderPath = checkAndGetParentFolders(path);
 
             return isFolderPath(path)
                     ? tryReturnAsFolder(path)
-                    : StorageAnswerDTO.getDefault(folderPath, getNameFromPath(path), getStatAboutFile(path).size());
+                    : StorageAnswerDTO.getDefault(folderPath, getNameFromPath(path), getFileSize(path));
 
         } catch (FileStorageNotFoundException |
                  InvalidFolderPathException |
@@ -111,83 +151,238 @@ public class FileStorageService {
     }
 
     /**
-     * Загрузка файла на сервер.
+     * Загрузка файла на сервер. Загрузка идет в три этапа: проверка, передача файла в хранилище
+     * и короткая транзакция с сохранением информации о файле. Соединение с БД не удерживается,
+     * пока файл передается в хранилище.
      *
      * @param file файл, дубликат определяется по имени (если загружаем 12.png, а он уже есть в этой папке --> ошибка)
      * @return Информация о созданном файле
      * @throws ResourceInStorageAlreadyExists > файл уже существует в этой папке
      */
-    @Transactional
     public UploadFileResponseDTO uploadFile(MultipartFile file, HttpServletRequest request) {
         try {
-            String token = jwtUtil.getTokenFromHeader(request)
-                    .orElseThrow(() -> new JwtException("Invalid token"));
-
-            String email = jwtUtil.extractEmail(token);
+            String email = principalResolver.resolve(request).email();
 
             log.debug("Загрузка файла: {}, File: {}", file);
             String fileName = getNameFromPath(getOriginalFileName(file));
-            String normalizedPath = getStandardFullRootFolder(null, request, jwtUtil);
+            String normalizedPath = getStandardFullRootFolder(null, request, principalResolver);
             String objectName = normalizedPath + fileName;
             log.debug("objectName: {}", objectName);
             log.debug("normalizedPath: {}", normalizedPath);
 
-            ContentType fileType = validatePathAndCheckIsFileAlreadyExists(objectName, fileName);
+            ContentType fileType = validateUploadPath(objectName, fileName);
 
-            uploadFileInFolder(file, objectName);
+            long fileSize = storeFile(file, objectName, fileType);
+            saveUploadMetadataOrDeleteFile(objectName, fileName, fileType, fileSize, email);
 
-            UpdateFile updateFile = UpdateFile.builder()
-                    .fileId(UUID.randomUUID())
-                    .fileName(fileName)
-                    .contentType(fileType)
-                    .fileSize(file.getSize())
-                    .uploaderEmail(email)
-                    .status(FileStatus.UPLOADED)
-                    .createdAt(Instant.now())
-                    .updatedAt(Instant.now())
-                    .build();
+            return new UploadFileResponseDTO("Ваш документ принят! Отчет будет направлен на почту", email);
+        } catch (ResourceInStorageAlreadyExists | FileStorageNotFoundException | CantGetUserContextIdException |
+                 InvalidFolderPathException | BadFormatException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileStorageException("Не удалось загрузить файл", e);
+        }
+    }
 
-            log.info("UpdateFile: {}", updateFile);
-            updateFileRepository.save(updateFile);
+    /**
+     * Потоковая загрузка файла на сервер. Тело запроса без промежуточного файла на диске
+     * отправляется в хранилище частями (multipart upload). Этапы те же, что и у uploadFile.
+     *
+     * @param fileName       имя файла, дубликат определяется по имени
+     * @param declaredSha256 заявленный клиентом SHA-256 содержимого (null --> не заявлен). При включенной дедупликации
+     *                       и уже известном содержимом файл не записывается в хранилище
+     * @return Информация о созданном файле
+     * @throws ResourceInStorageAlreadyExists > файл уже существует в этой папке
+     * @throws BadFormatException             > заявленный SHA-256 не совпал с содержимым
+     */
+    public UploadFileResponseDTO uploadFileStream(String fileName, String declaredSha256, HttpServletRequest request) {
+        try {
+            String email = principalResolver.resolve(request).email();
 
-            FileUploadedEvent fileUpdateEvent = kafkaMapper.fromEntityToFileUpdateEvent(updateFile);
-            log.info("FileUploadedEvent: {}", fileUpdateEvent);
-            OutboxKafka outboxKafka = kafkaMapper.fromDtoToEntity(fileUpdateEvent);
+            fileName = getNameFromPath(fileName);
+            String objectName = getStandardFullRootFolder(null, request, principalResolver) + fileName;
+            log.debug("Потоковая загрузка файла, objectName: {}", objectName);
 
-            var outbox = outboxKafkaRepository.save(outboxKafka);
-            log.info("Outbox: {}", outbox);
+            ContentType fileType = validateUploadPath(objectName, fileName);
+
+            long fileSize;
+            try (InputStream inputStream = checkSignature(request.getInputStream(), fileType)) {
+                fileSize = contentAddressedStorage.isEnabled()
+                        ? contentAddressedStorage.store(inputStream, objectName, getMimeType(fileType), declaredSha256)
+                        : multipartStreamUploader.upload(inputStream, objectName, getMimeType(fileType));
+            }
+            storageMetadataCache.invalidate(objectName);
+            saveUploadMetadataOrDeleteFile(objectName, fileName, fileType, fileSize, email);
 
             return new UploadFileResponseDTO("Ваш документ принят! Отчет будет направлен на почту", email);
         } catch (ResourceInStorageAlreadyExists | FileStorageNotFoundException | CantGetUserContextIdException |
-                 InvalidFolderPathException | BadFormatException e) {
+                 InvalidFolderPathException | BadFormatException | FileUploadSizeException e) {
             throw e;
         } catch (Exception e) {
-            deleteFileIfExistAfterException(file, request);
             throw new FileStorageException("Не удалось загрузить файл", e);
         }
     }
 
-    private void deleteFileIfExistAfterException(MultipartFile file, HttpServletRequest request) {
-        String fileName = getNameFromPath(getOriginalFileName(file));
-        String normalizedPath = getStandardFullRootFolder(null, request, jwtUtil);
-        String objectName = normalizedPath + fileName;
-        if (isFileExists(objectName)) {
-            deleteFile(objectName);
+    /**
+     * Пакетная загрузка нескольких файлов. Файлы проверяются по отдельности, в хранилище пишутся параллельно
+     * (не больше batchParallelism одновременно), а информация о всех загруженных файлах сохраняется одной пакетной вставкой.
+     * Ошибка одного файла не отменяет загрузку остальных.
+     *
+     * @param files файлы, дубликаты определяются по имени
+     * @return Результат загрузки по каждому файлу
+     */
+    public BatchUploadResponseDTO uploadFiles(List<MultipartFile> files, HttpServletRequest request) {
+        if (files.isEmpty() || files.size() > batchMaxFiles) {
+            throw new IllegalArgumentException("Количество файлов должно быть от 1 до " + batchMaxFiles);
+        }
+
+        String email = principalResolver.resolve(request).email();
+        String normalizedPath = getStandardFullRootFolder(null, request, principalResolver);
+
+        BatchUploadItemDTO[] results = new BatchUploadItemDTO[files.size()];
+        List<PendingUpload> pendingUploads = prepareBatchUploads(files, normalizedPath, results);
+
+        Map<PendingUpload, CompletableFuture<Long>> storageWrites = new LinkedHashMap<>();
+        Semaphore inFlight = new Semaphore(batchParallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (PendingUpload upload : pendingUploads) {
+                storageWrites.put(upload, CompletableFuture.supplyAsync(() -> {
+                    inFlight.acquireUninterruptibly();
+                    try {
+                        return storeFile(upload.file(), upload.objectName(), upload.fileType());
+                    } finally {
+                        inFlight.release();
+                    }
+                }, executor));
+            }
         }
+
+        List<PendingUpload> storedUploads = new ArrayList<>();
+        List<UploadMetadataService.StoredFile> storedFiles = new ArrayList<>();
+        storageWrites.forEach((upload, write) -> {
+            try {
+                storedFiles.add(new UploadMetadataService.StoredFile(upload.fileName(), upload.fileType(), write.join()));
+                storedUploads.add(upload);
+            } catch (CompletionException e) {
+                log.error("Не удалось загрузить файл '{}' в пакете", upload.objectName(), e.getCause());
+                results[upload.index()] = new BatchUploadItemDTO(upload.fileName(), false, getBatchErrorMessage(e.getCause()));
+            }
+        });
+
+        try {
+            uploadMetadataService.saveUploadMetadataBatch(storedFiles, email);
+            for (int i = 0; i < storedUploads.size(); i++) {
+                PendingUpload upload = storedUploads.get(i);
+                storageObjectIndex.recordFile(upload.objectName(), storedFiles.get(i).fileSize(), null);
+                results[upload.index()] = new BatchUploadItemDTO(upload.fileName(), true, "Файл загружен");
+            }
+        } catch (Exception e) {
+            log.error("Не удалось сохранить информацию о пакете файлов, загруженные файлы будут удалены", e);
+            storedUploads.forEach(upload -> {
+                deleteUserFile(upload.objectName());
+                results[upload.index()] = new BatchUploadItemDTO(upload.fileName(), false, "Не удалось загрузить файл");
+            });
+        }
+
+        int uploaded = (int) Arrays.stream(results).filter(BatchUploadItemDTO::uploaded).count();
+        return new BatchUploadResponseDTO(email, uploaded, results.length - uploaded, List.of(results));
+    }
+
+    /**
+     * Проверка каждого файла пакета. Файлы, не прошедшие проверку, сразу попадают в результат с ошибкой
+     *
+     * @param results результаты загрузки по индексу файла
+     * @return файлы, которые можно загружать
+     */
+    private List<PendingUpload> prepareBatchUploads(List<MultipartFile> files, String normalizedPath, BatchUploadItemDTO[] results) {
+        List<PendingUpload> pendingUploads = new ArrayList<>();
+        Set<String> objectNames = new HashSet<>();
+
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String fileName = file.getOriginalFilename();
+            try {
+                fileName = getNameFromPath(getOriginalFileName(file));
+                String objectName = normalizedPath + fileName;
+
+                if (!objectNames.add(objectName)) {
+                    throw new ResourceInStorageAlreadyExists("Файл с таким именем уже есть в запросе");
+                }
+
+                ContentType fileType = validateUploadPath(objectName, fileName);
+                pendingUploads.add(new PendingUpload(i, file, fileName, objectName, fileType));
+            } catch (Exception e) {
+                results[i] = new BatchUploadItemDTO(fileName, false, getBatchErrorMessage(e));
+            }
+        }
+        return pendingUploads;
+    }
+
+    private static String getBatchErrorMessage(Throwable e) {
+        return e instanceof ResourceInStorageAlreadyExists
+                || e instanceof BadFormatException
+                || e instanceof InvalidFolderPathException
+                || e instanceof IllegalArgumentException
+                ? e.getMessage()
+                : "Не удалось загрузить файл";
+    }
+
+    /**
+     * Файл пакета, прошедший проверку и ожидающий загрузки в хранилище
+     *
+     * @param index позиция файла в запросе
+     */
+    private record PendingUpload(int index, MultipartFile file, String fileName, String objectName, ContentType fileType) {
+    }
+
+    /**
+     * Передача файла в хранилище (с дедупликацией, если она включена)
+     *
+     * @return размер файла
+     */
+    private long storeFile(MultipartFile file, String objectName, ContentType fileType) {
+        long fileSize = contentAddressedStorage.isEnabled()
+                ? storeDeduplicated(file, objectName, fileType)
+                : uploadFileInFolder(file, objectName, fileType);
+        storageMetadataCache.invalidate(objectName);
+        return fileSize;
     }
 
-    private ContentType validatePathAndCheckIsFileAlreadyExists(String path, String filename) {
-        log.debug("Проверка корректности пути validatePathAndCheckIsFileAlreadyExists: {}", path);
+    /**
+     * Сохранение информации о уже загруженном файле в отдельной короткой транзакции.
+     * Если сохранить не удалось, файл удаляется из хранилища, чтобы не оставлять объект без записи в БД.
+     * После сохранения файл добавляется в индекс объектов.
+     *
+     * @param objectName путь до загруженного файла
+     */
+    private void saveUploadMetadataOrDeleteFile(String objectName, String fileName, ContentType fileType, long fileSize, String email) {
+        try {
+            uploadMetadataService.saveUploadMetadata(fileName, fileType, fileSize, email);
+        } catch (Exception e) {
+            log.error("Не удалось сохранить информацию о файле '{}', файл будет удален", objectName, e);
+            deleteUserFile(objectName);
+            throw e;
+        }
+        storageObjectIndex.recordFile(objectName, fileSize, null);
+    }
+
+    /**
+     * Проверка пути и формата загружаемого файла. Существование файла заранее не проверяется:
+     * запись в хранилище условная (If-None-Match: *) и сама отклоняет дубликат без лишнего запроса и без гонки.
+     * С дедупликацией дубликат отсекает первичный ключ file_references, а statObject остается только
+     * для файлов, загруженных напрямую до включения дедупликации.
+     *
+     * @return формат файла
+     */
+    ContentType validateUploadPath(String path, String filename) {
+        log.debug("Проверка корректности пути validateUploadPath: {}", path);
         validatePathToFile(path);
         ContentType type = validateFileFormat(filename);
-        log.debug("Проверка существования файла:, {}", path);
 
-        if (isFileExists(path)) {
+        if (contentAddressedStorage.isEnabled() && isPlainObjectExists(path)) {
             log.debug("Ресурс по такому пути уже существует!:, {}", path);
             throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
         }
-
-        log.info("Ресурс '{}' не существует по этому пути. Можно создавать", path);
         return type;
     }
 
@@ -207,20 +402,24 @@ public class FileStorageService {
      * @param path путь до файла
      * @return ресурс для скачиваения
      */
-    public ResponseEntity<StreamingResponseBody> downloadResource(String path, HttpServletResponse response, HttpServletRequest request) {
+    public ResponseEntity<?> downloadResource(String path, HttpServletResponse response, HttpServletRequest request) {
         try {
-            String userPath = getFullUserPath(path, request, jwtUtil);
+            String userPath = getFullUserPath(path, request, principalResolver);
 
             if (!doesResourceExists(userPath)) {
                 log.error("Ресурс для скачивания не был найден: {}", userPath);
                 throw new FileStorageNotFoundException("Ресурс для скачивания не был найден");
             }
 
-            return isFolderPath(userPath)
-                    ? downloadFolder(userPath, response)
-                    : downloadFile(userPath, response);
+            if (isFolderPath(userPath)) {
+                return downloadFolder(userPath, response);
+            }
+            return presignedUrlService.isEnabled()
+                    ? downloadFileByPresignedUrl(userPath)
+                    : downloadFile(userPath, response, request);
 
-        } catch (InvalidFolderPathException | FileStorageNotFoundException | CantGetUserContextIdException e) {
+        } catch (InvalidFolderPathException | FileStorageNotFoundException | CantGetUserContextIdException |
+                 StreamingCapacityExceededException e) {
             response.reset();
             response.setContentType(MediaType.APPLICATION_JSON_VALUE);
             throw e;
@@ -238,13 +437,8 @@ public class FileStorageService {
      */
     public void delete(String path, HttpServletRequest request) {
         try {
-            String pathWithUser = getFullUserPath(path, request, jwtUtil);
-
-            if (!doesResourceExists(pathWithUser)) {
-                throw new FileStorageNotFoundException("Папка/Файл не существует");
-            }
-
-            deleteObject(pathWithUser);
+            String pathWithUser = getExistingResourcePath(path, request);
+            deleteResource(pathWithUser, getRootFolder(request, principalResolver), OperationProgress.NONE);
 
         } catch (FileStorageNotFoundException | CantGetUserContextIdException e) {
             throw e;
@@ -255,14 +449,182 @@ public class FileStorageService {
     }
 
     /**
-     * Получение информации о всех файлах + папках по указанному пути.
+     * Полный путь до существующего файла/папки пользователя
+     *
+     * @param path путь до файла/папки
+     * @throws FileStorageNotFoundException > ресурс не существует
+     */
+    public String getExistingResourcePath(String path, HttpServletRequest request) {
+        String pathWithUser = getFullUserPath(path, request, principalResolver);
+
+        if (!doesResourceExists(pathWithUser)) {
+            throw new FileStorageNotFoundException("Папка/Файл не существует");
+        }
+        return pathWithUser;
+    }
+
+    /**
+     * Удаление файла/папки по уже проверенному полному пути (синхронный запрос или фоновая задача)
+     *
+     * @param pathWithUser полный путь до файла/папки
+     * @param rootFolder   корневая папка владельца
+     * @param progress     ход удаления, отмена проверяется перед каждым пакетом
+     * @throws OperationCancelledException > удаление отменено, часть объектов уже удалена
+     */
+    public void deleteResource(String pathWithUser, String rootFolder, OperationProgress progress) {
+        try {
+            deleteObject(pathWithUser, progress);
+        } finally {
+            if (pathWithUser.equals(rootFolder)) {
+                // Реестр считает корневую папку созданной навсегда, поэтому после очистки корня она создается заново
+                makeEmptyFolder(rootFolder);
+            }
+        }
+    }
+
+    /**
+     * Перемещение или переименование файла/папки (папка перемещается вместе со всем содержимым).
+     * Если перемещение папки было прервано, повторный запрос с теми же путями продолжает его
+     *
+     * @param from текущий путь ресурса
+     * @param to   новый путь ресурса
+     * @return Информация о ресурсе по новому пути
+     */
+    public StorageResourceDTO moveResource(String from, String to, HttpServletRequest request) {
+        MovePaths paths = prepareMove(from, to, request);
+        return moveResolved(paths.oldFullPath(), paths.newFullPath(), OperationProgress.NONE);
+    }
+
+    /**
+     * Полные пути перемещаемого ресурса
+     */
+    public record MovePaths(String oldFullPath, String newFullPath) {
+    }
+
+    /**
+     * Проверка перемещения до его начала. Для продолжения прерванного перемещения папки проверки не повторяются:
+     * часть содержимого уже лежит по новому пути
+     *
+     * @param from текущий путь ресурса
+     * @param to   новый путь ресурса
+     * @return полные пути ресурса
+     */
+    public MovePaths prepareMove(String from, String to, HttpServletRequest request) {
+        if (isRootFolder(from) || isRootFolder(to)) {
+            throw new IllegalArgumentException("Нельзя переместить корневую папку");
+        }
+
+        String oldFullPath = getFullUserPath(from, request, principalResolver);
+        String newFullPath = getFullUserPath(to, request, principalResolver);
+
+        if (isFolderPath(oldFullPath) && folderMover.isPending(oldFullPath, newFullPath)) {
+            log.info("Повторный запрос прерванного перемещения папки {} в {}", oldFullPath, newFullPath);
+        } else {
+            preparationBeforeMoving(oldFullPath, newFullPath);
+            checkAndGetParentFolders(newFullPath);
+        }
+        return new MovePaths(oldFullPath, newFullPath);
+    }
+
+    /**
+     * Перемещение по уже проверенным путям (см. prepareMove)
+     *
+     * @param progress ход копирования папки, отмена проверяется перед каждым объектом
+     * @return Информация о ресурсе по новому пути
+     * @throws OperationCancelledException > перемещение отменено, его можно продолжить повторным перемещением
+     */
+    public StorageResourceDTO moveResolved(String oldFullPath, String newFullPath, OperationProgress progress) {
+        if (isFolderPath(oldFullPath)) {
+            moveFolder(oldFullPath, newFullPath, progress);
+        } else {
+            moveFile(oldFullPath, newFullPath);
+            storageObjectIndex.move(oldFullPath, newFullPath);
+            progress.onObjectsDone(1, 0);
+        }
+
+        return getInfoAboutResourceWithoutValidation(newFullPath);
+    }
+
+    /**
+     * Получение информации о файлах + папках по указанному пути, одна страница.
+     * Ресурсы идут в порядке ключей хранилища, курсор - путь последнего ресурса страницы.
+     * Без limit и cursor возвращается все содержимое папки, как до появления страниц
+     *
+     * @param path   путь до папки, по которой нужно вернуть информацию.
+     * @param limit  размер страницы (null --> по умолчанию, если передан курсор, иначе вся папка)
+     * @param cursor курсор следующей страницы из предыдущего ответа
+     * @return Страница DTO с файлами и папками, которые располагаются по пути.
+     */
+    public ResourcePageDTO getFilesFromDirectory(String path, Integer limit, String cursor, HttpServletRequest request) {
+        String fullPath = getExistingFolderPath(path, request);
+        if (limit == null && cursor == null) {
+            return new ResourcePageDTO(getAllResources(fullPath), null);
+        }
+        return getResourcesPage(fullPath, getPageSize(limit, directoryDefaultPageSize, directoryMaxPageSize),
+                getCursorInside(cursor, fullPath));
+    }
+
+    /**
+     * Все содержимое папки, прочитанное страницами по directory.max-limit
+     */
+    private List<StorageResourceDTO> getAllResources(String fullPath) {
+        List<StorageResourceDTO> resources = new ArrayList<>();
+        String after = null;
+        do {
+            List<ListedResource> page = listResources(fullPath, directoryMaxPageSize, after);
+            page.forEach(resource -> resources.add(resource.dto()));
+            after = page.size() < directoryMaxPageSize ? null : page.getLast().objectName();
+        } while (after != null);
+        return resources;
+    }
+
+    /**
+     * Потоковая отдача всех файлов + папок по указанному пути (начиная с курсора, если он передан).
+     * Содержимое читается и пишется в ответ страницами, поэтому память на запрос не зависит от размера папки
      *
-     * @param path путь до папки, по которой нужно вернуть информацию.
-     * @return Коллекция DTO с файлами и папками, которые располагаются по пути.
+     * @param path   путь до папки
+     * @param cursor курсор, с которого продолжить
+     * @param ndjson true --> по одному JSON объекту на строку (application/x-ndjson), false --> JSON массив
+     * @return поток с ресурсами папки
      */
-    public List<StorageResourceDTO> getFilesFromDirectory(String path, HttpServletRequest request) {
+    public StreamingResponseBody streamFilesFromDirectory(String path, String cursor, boolean ndjson, HttpServletRequest request) {
+        String fullPath = getExistingFolderPath(path, request);
+        String afterObjectName = getCursorInside(cursor, fullPath);
+
+        return streamingLimiter.admit(StreamType.LISTING, out -> {
+            boolean first = true;
+            if (!ndjson) {
+                out.write('[');
+            }
+
+            String after = afterObjectName;
+            do {
+                List<ListedResource> page = listResources(fullPath, directoryMaxPageSize, after);
+                for (ListedResource resource : page) {
+                    if (!ndjson && !first) {
+                        out.write(',');
+                    }
+                    out.write(objectMapper.writeValueAsBytes(resource.dto()));
+                    if (ndjson) {
+                        out.write('\n');
+                    }
+                    first = false;
+                }
+                out.flush();
+                after = page.size() < directoryMaxPageSize ? null : page.getLast().objectName();
+            } while (after != null);
 
-        String fullPath = getFullUserPath(path, request, jwtUtil);
+            if (!ndjson) {
+                out.write(']');
+            }
+        });
+    }
+
+    /**
+     * Полный путь до существующей папки пользователя
+     */
+    public String getExistingFolderPath(String path, HttpServletRequest request) {
+        String fullPath = getFullUserPath(path, request, principalResolver);
 
         if (!isFolderPath(fullPath)) {
             throw new InvalidFolderPathException("Необходимо ввести путь к папке, а не файлу");
@@ -272,54 +634,129 @@ public class FileStorageService {
             log.warn("Папка по пути: {} не существует", fullPath);
             throw new FolderNotFoundException("Папка по указанному пути не существует");
         }
+        return fullPath;
+    }
 
-        return getAllResourcesInFolder(fullPath);
+    /**
+     * Курсор должен указывать на ресурс внутри запрошенной папки
+     *
+     * @return путь последнего ресурса предыдущей страницы или null
+     */
+    private static String getCursorInside(String cursor, String fullPath) {
+        String afterObjectName = fromCursor(cursor);
+        if (afterObjectName != null && !afterObjectName.startsWith(fullPath)) {
+            throw new IllegalArgumentException("Неверный курсор страницы");
+        }
+        return afterObjectName;
+    }
+
+    private ResourcePageDTO getResourcesPage(String fullPath, int pageSize, String afterObjectName) {
+        List<ListedResource> found = listResources(fullPath, pageSize + 1, afterObjectName);
+        List<ListedResource> page = found.subList(0, Math.min(pageSize, found.size()));
+
+        return new ResourcePageDTO(
+                page.stream().map(ListedResource::dto).toList(),
+                found.size() > pageSize ? toCursor(page.getLast().objectName()) : null);
     }
 
     /**
-     * Получение информации о всех ресурсах в папке (не рекурсивно)
+     * Ресурсы папки (не рекурсивно) после указанного пути в порядке ключей хранилища (побайтово в UTF-8).
+     * Если включен индекс объектов, читается индекс. Иначе листинг MinIO (startAfter) сливается
+     * со ссылками на blob-ы, которые идут в том же порядке
      *
-     * @param fullPath путь до папки
-     * @return Все файлы в папке
+     * @param fullPath        путь до папки
+     * @param limit           максимальное количество ресурсов
+     * @param afterObjectName путь последнего ресурса предыдущей страницы (null --> с начала папки)
      */
-    private List<StorageResourceDTO> getAllResourcesInFolder(String fullPath) {
-        try {
-            var resources = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullPath)
-                            .delimiter("/")
-                            .build()
-            );
+    private List<ListedResource> listResources(String fullPath, int limit, String afterObjectName) {
+        if (storageObjectIndex.isReady()) {
+            return storageObjectIndex.findChildren(fullPath, afterObjectName, limit).stream()
+                    .map(object -> new ListedResource(object.getObjectName(), storageObjectToDto(object)))
+                    .toList();
+        }
 
-            List<StorageResourceDTO> result = new ArrayList<>();
-            for (Result<Item> resource : resources) {
+        try {
+            ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .prefix(fullPath)
+                    .delimiter("/")
+                    .maxKeys(Math.min(limit, MAX_LIST_KEYS));
+            if (afterObjectName != null) {
+                args.startAfter(toStartAfter(afterObjectName));
+            }
 
-                String fileName = resource.get().objectName();
+            List<ListedResource> listed = new ArrayList<>();
+            for (Result<Item> resource : minioClient.listObjects(args.build())) {
+                Item item = resource.get();
+                String objectName = item.objectName();
 
-                if (fileName.isBlank() || fileName.equals(fullPath)) {
+                if (objectName.isBlank() || objectName.equals(fullPath)) {
                     continue;
                 }
 
-                if (resource.get().size() > 0) {
-                    result.add(StorageAnswerDTO.getDefault(fullPath, getNameFromPath(fileName), resource.get().size()));
-                } else {
-                    result.add(StorageFolderAnswerDTO.getDefault(fullPath, getNameFromPath(fileName)));
+                listed.add(new ListedResource(objectName, item.isDir() || objectName.endsWith("/")
+                        ? StorageFolderAnswerDTO.getDefault(fullPath, getNameFromPath(objectName))
+                        : StorageAnswerDTO.getDefault(fullPath, getNameFromPath(objectName), item.size())));
+                if (listed.size() == limit) {
+                    break;
                 }
             }
 
-            return result;
+            List<ListedResource> referenced = contentAddressedStorage.findChildren(fullPath, afterObjectName, limit).stream()
+                    .map(reference -> new ListedResource(reference.getObjectName(), referenceToDto(reference)))
+                    .toList();
+
+            return mergeByObjectName(listed, referenced, limit);
         } catch (Exception e) {
             throw new FileStorageException("Ошибка при попытке получить информацию о ресурсах в папке", e);
         }
     }
 
+    /**
+     * Для курсора-папки MinIO вернул бы ту же папку снова (ее содержимое идет после нее),
+     * поэтому листинг продолжается с ключа сразу за всем содержимым папки: "a/b/" --> "a/b0"
+     */
+    private static String toStartAfter(String afterObjectName) {
+        return afterObjectName.endsWith("/")
+                ? afterObjectName.substring(0, afterObjectName.length() - 1) + (char) ('/' + 1)
+                : afterObjectName;
+    }
+
+    /**
+     * Слияние двух отсортированных списков ресурсов
+     */
+    private static List<ListedResource> mergeByObjectName(List<ListedResource> left, List<ListedResource> right, int limit) {
+        List<ListedResource> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < left.size() || j < right.size())) {
+            if (j == right.size()
+                    || i < left.size() && compareObjectNames(left.get(i).objectName(), right.get(j).objectName()) <= 0) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Ресурс папки вместе с полным путем (по нему строится курсор)
+     */
+    private record ListedResource(String objectName, StorageResourceDTO dto) {
+    }
+
     /**
      * Рекурсивно ищет файлы в системе начиная с root папки пользователя.
+     * С индексом объектов ищется часть имени (без учета регистра, сначала точные совпадения и совпадения по началу имени)
+     * и результаты отдаются страницами. Без индекса ищется точное имя (без учета регистра) листингом хранилища
+     * в порядке ключей: без limit и cursor возвращаются все совпадения, как до появления страниц.
      *
-     * @param query ресурс, который ищем
+     * @param query  ресурс, который ищем (имя или его часть)
+     * @param limit  размер страницы (null --> по умолчанию; без индекса, если не передан и курсор, -- все совпадения)
+     * @param cursor курсор следующей страницы из предыдущего ответа
      */
-    public List<StorageResourceDTO> searchResource(HttpServletRequest request, String query) {
+    public ResourcePageDTO searchResource(HttpServletRequest request, String query, Integer limit, String cursor) {
         if (isRootFolder(query)) {
             throw new IllegalArgumentException("Параметр запроса не может быть пустым или корневой папкой");
         }
@@ -328,24 +765,82 @@ public class FileStorageService {
             throw new InvalidFolderPathException("Поисковый запрос содержит недопустимые элементы: " + query);
         }
 
-        if (!query.matches("^[\\p{L}\\p{N} _\\-.]{1,100}$")) {
+        if (!PathCodec.isValidSearchQuery(query)) {
             throw new InvalidFolderPathException("Недопустимый путь: " + query);
         }
 
-        var results = minioClient.listObjects(
-                ListObjectsArgs.builder()
-                        .bucket(bucketName)
-                        .prefix(getRootFolder(request, jwtUtil))
-                        .recursive(true)
-                        .build());
+        int pageSize = getPageSize(limit, defaultPageSize, maxPageSize);
+        String rootFolder = getRootFolder(request, principalResolver);
+        String afterObjectName = getCursorInside(cursor, rootFolder);
+        if (storageObjectIndex.isReady()) {
+            List<StorageObject> found = storageObjectIndex.search(rootFolder, query, pageSize + 1, afterObjectName);
+            List<StorageObject> page = found.subList(0, Math.min(pageSize, found.size()));
+            return new ResourcePageDTO(
+                    page.stream().map(this::storageObjectToDto).toList(),
+                    found.size() > pageSize ? toCursor(page.getLast().getObjectName()) : null);
+        }
+
+        if (limit == null && cursor == null) {
+            return new ResourcePageDTO(
+                    searchStorage(rootFolder, query, Integer.MAX_VALUE, null).stream().map(ListedResource::dto).toList(),
+                    null);
+        }
+
+        List<ListedResource> found = searchStorage(rootFolder, query, pageSize + 1, afterObjectName);
+        List<ListedResource> page = found.subList(0, Math.min(pageSize, found.size()));
+        return new ResourcePageDTO(
+                page.stream().map(ListedResource::dto).toList(),
+                found.size() > pageSize ? toCursor(page.getLast().objectName()) : null);
+    }
+
+    /**
+     * Поиск точного имени без индекса: рекурсивный листинг MinIO (startAfter) сливается
+     * со ссылками на blob-ы в порядке ключей хранилища
+     *
+     * @param limit           максимальное количество найденных ресурсов
+     * @param afterObjectName путь последнего ресурса предыдущей страницы (null --> с начала)
+     */
+    private List<ListedResource> searchStorage(String rootFolder, String query, int limit, String afterObjectName) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(rootFolder)
+                .recursive(true);
+        if (afterObjectName != null) {
+            args.startAfter(afterObjectName);
+        }
 
+        String lowerCaseQuery = query.toLowerCase();
+        List<ListedResource> listed = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(args.build())) {
+            Item item = getItemSafe(result);
+            if (item == null || !getNameFromPath(item.objectName().toLowerCase()).equals(lowerCaseQuery)) {
+                continue;
+            }
+            listed.add(new ListedResource(item.objectName(), itemToDto(item)));
+            if (listed.size() == limit) {
+                break;
+            }
+        }
 
-        return StreamSupport.stream(results.spliterator(), false)
-                .map(this::getItemSafe)
-                .filter(Objects::nonNull)
-                .filter(item -> getNameFromPath(item.objectName().toLowerCase()).equals(query.toLowerCase()))
-                .map(this::itemToDto)
+        List<ListedResource> referenced = contentAddressedStorage.findAllUnderByName(rootFolder, query).stream()
+                .filter(reference -> afterObjectName == null
+                        || compareObjectNames(reference.getObjectName(), afterObjectName) > 0)
+                .sorted((left, right) -> compareObjectNames(left.getObjectName(), right.getObjectName()))
+                .limit(limit)
+                .map(reference -> new ListedResource(reference.getObjectName(), referenceToDto(reference)))
                 .toList();
+
+        return mergeByObjectName(listed, referenced, limit);
+    }
+
+    private static int getPageSize(Integer limit, int defaultPageSize, int maxPageSize) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+        return limit;
     }
 
     /**
@@ -369,6 +864,8 @@ public class FileStorageService {
                             .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
                             .build()
             );
+            storageObjectIndex.recordFolder(folderPath);
+            storageMetadataCache.invalidate(folderPath);
             log.debug("Пустая папка '{}' создана", folderPath);
         } catch (Exception e) {
             log.error("Не получилось создать пустую папку: {}", folderPath, e);
@@ -415,13 +912,22 @@ public class FileStorageService {
     }
 
     /**
-     * Проверяет путь на наличие папок (т.к. их поиск отличается от поиска файлов)
+     * Проверяет путь на наличие папок (т.к. их поиск отличается от поиска файлов).
+     * Если включен индекс объектов, проверяется запись в индексе. Ответ кэшируется (StorageMetadataCache)
      *
      * @param folderPath путь до предполагаемой папки
      * @return true --> папка существует<p>
      * false --> папка не существует
      */
     private boolean checkIsFolderExists(String folderPath) {
+        return storageMetadataCache.exists(folderPath, this::loadIsFolderExists);
+    }
+
+    private boolean loadIsFolderExists(String folderPath) {
+        if (storageObjectIndex.isReady()) {
+            return storageObjectIndex.exists(folderPath);
+        }
+
         var results = minioClient.listObjects(
                 ListObjectsArgs.builder()
                         .bucket(bucketName)
@@ -462,6 +968,10 @@ public class FileStorageService {
      * @return Информация о ресурсе (размер и т.п.)
      */
     private StatObjectResponse getStatAboutFile(String path) {
+        return storageMetadataCache.stat(path, this::loadStatAboutFile);
+    }
+
+    private StatObjectResponse loadStatAboutFile(String path) {
         log.info("получение статистики о файле: {}", path);
         StatObjectResponse stat = null;
         try {
@@ -491,13 +1001,47 @@ public class FileStorageService {
     }
 
     /**
-     * Метод проверяет, существует ли файл
+     * Размер файла. Берется из индекса объектов, если он включен. Для файлов с дедупликацией берется из ссылки на blob,
+     * иначе из статистики MinIO
+     *
+     * @param path путь до файла
+     * @return размер файла
+     */
+    private long getFileSize(String path) {
+        if (storageObjectIndex.isReady()) {
+            return storageObjectIndex.find(path)
+                    .filter(object -> !object.isFolder())
+                    .map(StorageObject::getSize)
+                    .orElseThrow(() -> new FileStorageNotFoundException("Файл не был найден"));
+        }
+
+        return contentAddressedStorage.findReference(path)
+                .map(FileReference::getSize)
+                .orElseGet(() -> getStatAboutFile(path).size());
+    }
+
+    /**
+     * Метод проверяет, существует ли файл. Ответ кэшируется (StorageMetadataCache)
      *
      * @param path полный путь до файла
      * @return true -> существует<p>
      * false -> не существует
      */
     public boolean isFileExists(String path) {
+        return storageMetadataCache.exists(path, this::loadIsFileExists);
+    }
+
+    private boolean loadIsFileExists(String path) {
+        if (storageObjectIndex.isReady()) {
+            return storageObjectIndex.exists(path);
+        }
+        return contentAddressedStorage.findReference(path).isPresent() || isPlainObjectExists(path);
+    }
+
+    /**
+     * Проверка, существует ли объект в MinIO по этому пути (без учета ссылок на blob-ы)
+     */
+    private boolean isPlainObjectExists(String path) {
         try {
             minioClient.statObject(
                     StatObjectArgs.builder()
@@ -517,10 +1061,11 @@ public class FileStorageService {
     }
 
     /**
-     * Создание корневой папки пользователя
+     * Создание корневой папки пользователя. Папка создается один раз, дальше проверка идет по реестру в памяти
      */
     public void createUserRootFolder(HttpServletRequest request) {
-        makeEmptyFolder(getRootFolder(request, jwtUtil));
+        String rootFolder = getRootFolder(request, principalResolver);
+        userProvisioningRegistry.ensureProvisioned(rootFolder, () -> makeEmptyFolder(rootFolder));
     }
 
     /**
@@ -546,20 +1091,43 @@ public class FileStorageService {
      *
      * @param file       файл
      * @param objectName путь, куда загружать
+     * @param fileType   формат файла, содержимое проверяется по сигнатуре до начала записи
      */
     @SneakyThrows
-    private void uploadFileInFolder(MultipartFile file, String objectName) {
-        try (InputStream inputStream = file.getInputStream()) {
+    private long uploadFileInFolder(MultipartFile file, String objectName, ContentType fileType) {
+        try (InputStream inputStream = checkSignature(file.getInputStream(), fileType)) {
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .stream(inputStream, file.getSize(), -1)
                             .contentType(file.getContentType())
+                            .headers(CREATE_IF_ABSENT_HEADERS)
                             .build()
             );
+        } catch (ErrorResponseException e) {
+            if (isObjectAlreadyExistsError(e)) {
+                log.debug("Ресурс по такому пути уже существует!:, {}", objectName);
+                throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+            }
+            throw e;
         }
         log.info("Файл успешно загружен в '{}'", objectName);
+        return file.getSize();
+    }
+
+    /**
+     * Загрузка файла в хранилище с дедупликацией по содержимому.
+     * Файл уже лежит на диске, поэтому хеш считается до загрузки и дубликат в хранилище не пишется
+     *
+     * @param file       файл
+     * @param objectName путь пользователя до файла
+     * @return размер файла
+     */
+    @SneakyThrows
+    private long storeDeduplicated(MultipartFile file, String objectName, ContentType fileType) {
+        return contentAddressedStorage.store(
+                () -> checkSignature(file.getInputStream(), fileType), objectName, getMimeType(fileType));
     }
 
     /**
@@ -586,32 +1154,53 @@ public class FileStorageService {
      * Удаление объекта
      *
      * @param pathWithUser файл или папка. На основе решения что это будет выбран метод удаления
+     * @param progress     ход удаления
      */
-    private void deleteObject(String pathWithUser) {
+    private void deleteObject(String pathWithUser, OperationProgress progress) {
         if (isFolderPath(pathWithUser)) {
-            deleteFolder(pathWithUser);
+            try {
+                deleteFolder(pathWithUser, progress);
+            } finally {
+                storageMetadataCache.invalidateAllUnder(pathWithUser);
+            }
+            contentAddressedStorage.releaseAllUnder(pathWithUser);
+            storageObjectIndex.removeAllUnder(pathWithUser);
         } else {
-            deleteFile(pathWithUser);
+            deleteUserFile(pathWithUser);
+            storageObjectIndex.remove(pathWithUser);
+            progress.onObjectsDone(1, 0);
         }
     }
 
     /**
-     * Удаление папки и всего содержимого
+     * Удаление файла пользователя. Если файл хранится с дедупликацией, удаляется только ссылка на blob
      *
-     * @param pathWithUser путь до папки
+     * @param path путь до файла
      */
-    private void deleteFolder(String pathWithUser) {
-
-        try {
-            var results = getResourcesFromFolder(pathWithUser);
+    private void deleteUserFile(String path) {
+        if (!contentAddressedStorage.release(path)) {
+            deleteFile(path);
+        }
+        storageMetadataCache.invalidate(path);
+    }
 
-            for (var result : results) {
-                var item = result.get();
-                deleteFile(item.objectName());
-                log.info("Удалена папка: {}", item.objectName());
-            }
-        } catch (Exception e) {
-            throw new FileStorageException("Ошибка при удалении папок", e);
+    /**
+     * Удаление папки и всего содержимого пакетами multi-delete. Ошибка отдельного объекта не останавливает удаление
+     * остальных. Если часть объектов удалить не удалось или удаление отменено, индекс не меняется,
+     * и повторное удаление доудалит остаток
+     *
+     * @param pathWithUser путь до папки
+     * @throws FileStorageException        > часть объектов не удалена
+     * @throws OperationCancelledException > удаление отменено
+     */
+    private void deleteFolder(String pathWithUser, OperationProgress progress) {
+        BatchObjectRemover.RemovalReport report = batchObjectRemover.removeAllUnder(pathWithUser, progress);
+        log.info("Папка {} удалена: удалено объектов {}, ошибок {}", pathWithUser, report.removed(), report.failed());
+
+        if (report.failed() > 0) {
+            log.error("Не удалось удалить объекты папки {}: {}", pathWithUser, report.failedObjects());
+            throw new FileStorageException("Не удалось удалить " + report.failed() + " из " + report.requested()
+                    + " объектов папки");
         }
     }
 
@@ -628,6 +1217,7 @@ public class FileStorageService {
                             .object(path)
                             .build()
             );
+            storageMetadataCache.invalidate(path);
             log.info("Удалён файл: {}", path);
         } catch (Exception e) {
             throw new FileStorageException("Ошибка при удалении файла", e);
@@ -641,87 +1231,117 @@ public class FileStorageService {
         response.setContentType("application/zip");
         response.setHeader("Content-Disposition", "attachment; filename=\"" + getNameFromPath(userPath) + "\"");
 
-        return ResponseEntity.ok()
-                .body(getZipArchiveStream(userPath));
+        List<ZipSource> sources = getZipSources(userPath);
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+        zipArchiveStreamer.contentLength(sources).ifPresent(responseBuilder::contentLength);
+
+        return responseBuilder
+                .body(streamingLimiter.admit(StreamType.ZIP, getZipArchiveStream(userPath, sources)));
+    }
+
+    /**
+     * Запись ZIP архива папки в поток с отчетом о ходе (фоновая архивация, см. StorageJobService)
+     *
+     * @param userPath полный путь до папки
+     * @param out      поток, куда пишется архив
+     * @param progress ход архивации, отмена проверяется после каждого файла
+     * @throws OperationCancelledException > архивация отменена, архив в потоке не дописан
+     */
+    public void writeFolderArchive(String userPath, OutputStream out, OperationProgress progress) throws IOException {
+        List<ZipSource> sources = getZipSources(userPath);
+        progress.onTotals(sources.size(), sources.stream().mapToLong(ZipSource::size).sum());
+
+        zipArchiveStreamer.write(out, sources, source -> {
+            progress.onObjectsDone(1, source.size());
+            progress.throwIfCancelled();
+        });
     }
 
     /**
      * Метод открытия потока для возврата архива с файлами в буфере
      *
      * @param userPath путь до папки
+     * @param sources  файлы архива
      * @return поток с данными
      */
-    private StreamingResponseBody getZipArchiveStream(String userPath) {
+    private StreamingResponseBody getZipArchiveStream(String userPath, List<ZipSource> sources) {
         return out -> {
-            try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
-
-                var results = getResourcesFromFolder(userPath);
-
-                for (Result<Item> result : results) {
-                    Item item = result.get();
-                    if (!item.isDir()) {
-                        String objectName = item.objectName();
-
-                        if (objectName.equals(userPath) || objectName.equals(userPath + "/")) {
-                            continue;
-                        }
-
-                        String entryName = objectName.substring(userPath.length());
+            try {
+                zipArchiveStreamer.write(out, sources);
+            } catch (Exception e) {
+                log.error("Ошибка при архивации папки {}: {}", userPath, e.getMessage(), e);
+            }
+        };
+    }
 
-                        if (entryName.startsWith("/")) {
-                            entryName = entryName.substring(1);
-                        }
+    /**
+     * Все файлы папки рекурсивно (и загруженные напрямую, и ссылки на blob-ы) в порядке записи в архив
+     *
+     * @param userPath путь до папки
+     * @return файлы архива с размерами из листинга
+     */
+    private List<ZipSource> getZipSources(String userPath) {
+        Stream<ZipSource> plainFiles = StreamSupport.stream(getResourcesFromFolder(userPath).spliterator(), false)
+                .map(FileStorageService::getListedItem)
+                .filter(item -> !item.isDir())
+                .filter(item -> !item.objectName().equals(userPath) && !item.objectName().equals(userPath + "/"))
+                .map(item -> new ZipSource(toEntryName(item.objectName(), userPath), item.objectName(), item.size()));
+
+        Stream<ZipSource> referencedFiles = contentAddressedStorage.findAllUnder(userPath).stream()
+                .map(reference -> new ZipSource(
+                        reference.getObjectName().substring(userPath.length()),
+                        contentAddressedStorage.resolveObjectKey(reference.getObjectName()),
+                        reference.getSize()));
+
+        return Stream.concat(plainFiles, referencedFiles).toList();
+    }
 
-                        zipOut.putNextEntry(new ZipEntry(entryName));
+    private static String toEntryName(String objectName, String userPath) {
+        String entryName = objectName.substring(userPath.length());
+        return entryName.startsWith("/") ? entryName.substring(1) : entryName;
+    }
 
-                        try (InputStream in = minioClient.getObject(
-                                GetObjectArgs.builder()
-                                        .bucket(bucketName)
-                                        .object(objectName)
-                                        .build())) {
-                            in.transferTo(zipOut);
-                        } catch (Exception e) {
-                            log.error("Не удалось добавить файл {} в архив: {}", objectName, e.getMessage());
-                        }
+    @SneakyThrows
+    private static Item getListedItem(Result<Item> result) {
+        return result.get();
+    }
 
-                        zipOut.closeEntry();
-                    }
-                }
-                zipOut.finish();
-            } catch (Exception e) {
-                log.error("Ошибка при архивации папки {}: {}", userPath, e.getMessage(), e);
-            }
+    /**
+     * Скачивание файла напрямую из хранилища по подписанной ссылке. Права уже проверены (путь внутри rootFolder),
+     * поэтому сервис не передает байты файла, а только выдает ссылку
+     *
+     * @param userPath путь до файла
+     * @return перенаправление на ссылку или JSON со ссылкой
+     */
+    private ResponseEntity<?> downloadFileByPresignedUrl(String userPath) {
+        PresignedUrlDTO presignedUrl = presignedUrlService.presignDownload(
+                contentAddressedStorage.resolveObjectKey(userPath), getNameFromPath(userPath));
+
+        return switch (presignedUrlService.getResponseMode()) {
+            case REDIRECT -> ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(presignedUrl.url()))
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .build();
+            case JSON -> ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    .body(presignedUrl);
         };
     }
 
     /**
-     * Метод для скачивания файлов
+     * Метод для скачивания файлов. Поддерживаются условные запросы (ETag / Last-Modified)
+     * и скачивание части файла (Range), чтобы можно было продолжить прерванную загрузку
      *
      * @param userPath путь до файла
      * @param response ответ пользователю (куда будет отправляться поток файлов, чтобы не хранить в JVM)
      * @return поток данных с запрашиваемым ресурсом
      */
-    private ResponseEntity<StreamingResponseBody> downloadFile(String userPath, HttpServletResponse response) {
-        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
-        String headerValue = "attachment; filename*=UTF-8''" + URLEncoder.encode(getNameFromPath(userPath), StandardCharsets.UTF_8)
-                .replace("+", "%20");
+    private ResponseEntity<StreamingResponseBody> downloadFile(String userPath, HttpServletResponse response, HttpServletRequest request) {
+        response.setHeader("Content-Disposition", getAttachmentDisposition(getNameFromPath(userPath)));
+        String objectKey = contentAddressedStorage.resolveObjectKey(userPath);
 
-        response.setHeader("Content-Disposition", headerValue);
-        StreamingResponseBody stream = out -> {
-            try (InputStream in = minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(userPath)
-                            .build())) {
-                in.transferTo(out);
-            } catch (Exception e) {
-                log.error("Ошибка при скачивании файла: downloadFolder, {} ", userPath, e);
-                throw new ResourceDownloadException("Ошибка при попытке скачать файл");
-            }
-        };
-
-        return ResponseEntity.ok()
-                .body(stream);
+        return partialContentResponder.respond(objectKey, getStatAboutFile(objectKey), request, response);
     }
 
     /**
@@ -731,6 +1351,13 @@ public class FileStorageService {
      * @param newFullPath новый путь
      */
     private void moveFile(String oldFullPath, String newFullPath) {
+        storageMetadataCache.invalidate(oldFullPath);
+        storageMetadataCache.invalidate(newFullPath);
+        if (contentAddressedStorage.move(oldFullPath, newFullPath)) {
+            log.info("Ссылка на файл перемещена из {} в {}", oldFullPath, newFullPath);
+            return;
+        }
+
         try {
             CopySource source = CopySource.builder()
                     .bucket(bucketName)
@@ -756,34 +1383,27 @@ public class FileStorageService {
     }
 
     /**
-     * Перемещает папку и все содержимое в новый путь
+     * Перемещает папку и все содержимое в новый путь. Прерванное перемещение продолжается повторным вызовом
      *
      * @param oldFolderPath старый путь
      * @param newFolderPath новый путь
+     * @param progress      ход копирования
      */
-    private void moveFolder(String oldFolderPath, String newFolderPath) {
+    private void moveFolder(String oldFolderPath, String newFolderPath, OperationProgress progress) {
 
         if (newFolderPath.startsWith(oldFolderPath) && !newFolderPath.equals(oldFolderPath)) {
             throw new IllegalArgumentException("Нельзя переместить папку внутрь самой себя");
         }
 
         try {
-            var results = getResourcesFromFolder(oldFolderPath);
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String oldObjectName = item.objectName();
-
-                String newObjectName = oldObjectName.replaceFirst(Pattern.quote(oldFolderPath), newFolderPath);
-
-                moveFile(oldObjectName, newObjectName);
-
-                log.debug("Объект {} перемещен в {}", oldObjectName, newObjectName);
-            }
-            log.info("Папка {} успешно перемещена в {}", oldFolderPath, newFolderPath);
-        } catch (Exception e) {
-            log.error("Ошибка при перемещении папки из {} в {}: {}", oldFolderPath, newFolderPath, e.getMessage(), e);
-            throw new FileStorageException("Ошибка перемещения папки", e);
+            long moved = folderMover.move(oldFolderPath, newFolderPath, progress, () -> {
+                contentAddressedStorage.moveAllUnder(oldFolderPath, newFolderPath);
+                storageObjectIndex.moveAllUnder(oldFolderPath, newFolderPath);
+            });
+            log.info("Папка {} успешно перемещена в {}, скопировано объектов: {}", oldFolderPath, newFolderPath, moved);
+        } finally {
+            storageMetadataCache.invalidateAllUnder(oldFolderPath);
+            storageMetadataCache.invalidateAllUnder(newFolderPath);
         }
     }
 
@@ -815,7 +1435,7 @@ public class FileStorageService {
             } else {
                 String path = checkAndGetParentFolders(resourcePath);
                 String fileName = getNameFromPath(resourcePath);
-                long fileSize = getStatAboutFile(resourcePath).size();
+                long fileSize = getFileSize(resourcePath);
                 return StorageAnswerDTO.getDefault(path, fileName, fileSize);
             }
         } catch (FileStorageNotFoundException |
@@ -874,6 +1494,28 @@ public class FileStorageService {
                 : StorageAnswerDTO.getDefault(path, name, item.size());
     }
 
+    /**
+     * Преобразует ссылку на blob в DTO файла
+     *
+     * @param reference ссылка пользователя на blob
+     * @return DTO
+     */
+    private StorageResourceDTO referenceToDto(FileReference reference) {
+        return StorageAnswerDTO.getDefault(reference.getParentPath(), reference.getFileName(), reference.getSize());
+    }
+
+    /**
+     * Преобразует запись индекса объектов в DTO
+     *
+     * @param object файл/папка из индекса
+     * @return DTO
+     */
+    private StorageResourceDTO storageObjectToDto(StorageObject object) {
+        return object.isFolder()
+                ? StorageFolderAnswerDTO.getDefault(object.getParentPath(), object.getName())
+                : StorageAnswerDTO.getDefault(object.getParentPath(), object.getName(), object.getSize());
+    }
+
     /**
      * Безопасно получает файл из Result(Item)
      *
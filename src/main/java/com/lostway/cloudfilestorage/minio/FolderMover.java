@@ -0,0 +1,232 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.cloudfilestorage.exception.dto.OperationCancelledException;
+import com.lostway.cloudfilestorage.repository.ResourceMoveRepository;
+import com.lostway.cloudfilestorage.repository.entity.ResourceMove;
+import com.lostway.cloudfilestorage.repository.entity.ResourceMoveStatus;
+import com.lostway.cloudfilestorage.utils.PathCodec;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Перемещение папки со всем содержимым. Объекты копируются на стороне хранилища параллельно
+ * (не больше parallel-copies одновременно), затем старые объекты удаляются пакетами multi-delete.
+ * <p>
+ * Ход перемещения хранится в resource_moves. Прерванное перемещение продолжается повторным вызовом с теми же путями:
+ * на этапе копирования уже скопированные объекты (тот же ключ и размер) пропускаются,
+ * на этапе удаления копирование не повторяется.
+ * <p>
+ * Отмена учитывается только на этапе копирования: перемещение остается в resource_moves и продолжается
+ * повторным вызовом. Начатое удаление старой папки доводится до конца.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FolderMover {
+
+    private final MinioClient minioClient;
+    private final BatchObjectRemover batchObjectRemover;
+    private final ResourceMoveRepository resourceMoveRepository;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.move.parallel-copies:16}")
+    private int parallelCopies;
+
+    /**
+     * Есть ли незавершенное перемещение этой папки в этот же путь
+     */
+    public boolean isPending(String oldFolderPath, String newFolderPath) {
+        return resourceMoveRepository.findById(oldFolderPath)
+                .map(move -> move.getTargetPath().equals(newFolderPath))
+                .orElse(false);
+    }
+
+    /**
+     * Перемещение папки или продолжение прерванного перемещения
+     *
+     * @param oldFolderPath  старый путь папки
+     * @param newFolderPath  новый путь папки
+     * @param onObjectsMoved перенос связанных данных (ссылки на blob-ы, индекс) после переноса объектов.
+     *                       Выполняется до завершения перемещения, поэтому должен быть повторяемым
+     * @return количество скопированных объектов
+     * @throws IllegalArgumentException > папка уже перемещается в другой путь
+     * @throws FileStorageException     > перемещение прервано, его можно продолжить повторным вызовом
+     */
+    public long move(String oldFolderPath, String newFolderPath, Runnable onObjectsMoved) {
+        return move(oldFolderPath, newFolderPath, OperationProgress.NONE, onObjectsMoved);
+    }
+
+    /**
+     * Перемещение папки с отчетом о ходе копирования
+     *
+     * @param progress ход операции: скопированные (или уже скопированные ранее) объекты и их размер
+     * @throws OperationCancelledException > отмена запрошена на этапе копирования
+     * @see #move(String, String, Runnable)
+     */
+    public long move(String oldFolderPath, String newFolderPath, OperationProgress progress, Runnable onObjectsMoved) {
+        Optional<ResourceMove> pending = resourceMoveRepository.findById(oldFolderPath);
+        if (pending.isPresent() && !pending.get().getTargetPath().equals(newFolderPath)) {
+            throw new IllegalArgumentException("Папка уже перемещается в " + pending.get().getTargetPath()
+                    + ", повторите то перемещение, чтобы завершить его");
+        }
+
+        ResourceMove move = pending.orElseGet(() -> save(ResourceMove.builder()
+                .sourcePath(oldFolderPath)
+                .targetPath(newFolderPath)
+                .status(ResourceMoveStatus.COPYING)
+                .createdAt(Instant.now())
+                .build()));
+        if (pending.isPresent()) {
+            log.info("Продолжение перемещения папки {} в {} с этапа {}", oldFolderPath, newFolderPath, move.getStatus());
+        }
+
+        try {
+            long copied = 0;
+            if (move.getStatus() == ResourceMoveStatus.COPYING) {
+                copied = copyAll(oldFolderPath, newFolderPath, pending.isPresent(), progress);
+                move.setStatus(ResourceMoveStatus.REMOVING);
+                save(move);
+            }
+
+            BatchObjectRemover.RemovalReport report = batchObjectRemover.removeAllUnder(oldFolderPath);
+            if (report.failed() > 0) {
+                log.error("Не удалось удалить объекты папки {} после копирования: {}", oldFolderPath, report.failedObjects());
+                throw new FileStorageException("Не удалось удалить " + report.failed() + " из " + report.requested()
+                        + " объектов старой папки");
+            }
+
+            onObjectsMoved.run();
+            resourceMoveRepository.delete(move);
+            return copied;
+        } catch (Exception e) {
+            move.setLastError(e.getMessage());
+            save(move);
+            if (e instanceof OperationCancelledException cancelled) {
+                log.info("Перемещение папки {} в {} отменено на этапе {}", oldFolderPath, newFolderPath, move.getStatus());
+                throw cancelled;
+            }
+            log.error("Перемещение папки {} в {} прервано на этапе {}", oldFolderPath, newFolderPath, move.getStatus(), e);
+            throw e instanceof FileStorageException fileStorageException
+                    ? fileStorageException
+                    : new FileStorageException("Ошибка перемещения папки", e);
+        }
+    }
+
+    /**
+     * Параллельное копирование всех объектов папки. Первая ошибка останавливает отправку новых копий,
+     * уже начатые копирования дожидаются завершения
+     *
+     * @param resuming продолжение прерванного перемещения: объекты, которые уже есть в новой папке, не копируются
+     * @return количество скопированных объектов
+     * @throws OperationCancelledException > запрошена отмена, начатые копирования завершены
+     */
+    private long copyAll(String oldFolderPath, String newFolderPath, boolean resuming,
+                         OperationProgress progress) throws Exception {
+        Map<String, Long> alreadyCopied = resuming ? listSizes(newFolderPath) : Map.of();
+        AtomicLong copied = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(parallelCopies);
+
+        boolean cancelled = false;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Result<Item> result : listAll(oldFolderPath)) {
+                if (failure.get() != null) {
+                    break;
+                }
+                if (progress.isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+
+                Item item = result.get();
+                String source = item.objectName();
+                String target = PathCodec.rebase(source, oldFolderPath, newFolderPath);
+                Long copiedSize = alreadyCopied.get(target);
+                long size = item.size();
+                if (copiedSize != null && copiedSize == size) {
+                    progress.onObjectsDone(1, size);
+                    continue;
+                }
+
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        copy(source, target);
+                        copied.incrementAndGet();
+                        progress.onObjectsDone(1, size);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new FileStorageException("Ошибка копирования объектов папки, скопировано " + copied.get(), failure.get());
+        }
+        if (cancelled) {
+            throw new OperationCancelledException("Перемещение отменено, скопировано объектов: " + copied.get());
+        }
+        log.debug("Папка {} скопирована в {}: объектов {}", oldFolderPath, newFolderPath, copied.get());
+        return copied.get();
+    }
+
+    private void copy(String source, String target) throws Exception {
+        minioClient.copyObject(
+                CopyObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(target)
+                        .source(CopySource.builder()
+                                .bucket(bucketName)
+                                .object(source)
+                                .build())
+                        .build());
+    }
+
+    private Map<String, Long> listSizes(String folderPath) throws Exception {
+        Map<String, Long> sizes = new HashMap<>();
+        for (Result<Item> result : listAll(folderPath)) {
+            Item item = result.get();
+            sizes.put(item.objectName(), item.size());
+        }
+        return sizes;
+    }
+
+    private Iterable<Result<Item>> listAll(String folderPath) {
+        return minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .prefix(folderPath)
+                        .recursive(true)
+                        .build());
+    }
+
+    private ResourceMove save(ResourceMove move) {
+        move.setUpdatedAt(Instant.now());
+        return resourceMoveRepository.save(move);
+    }
+}
@@ -0,0 +1,252 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageNotFoundException;
+import com.lostway.cloudfilestorage.streaming.PartialContentResponder;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getAttachmentDisposition;
+
+/**
+ * Результаты фоновых задач (ZIP архивы папок) в хранилище. Результаты лежат вне папок пользователей,
+ * поэтому не попадают в листинг, поиск и индекс. Архив пишется в хранилище потоком, без файла на диске:
+ * архив собирается в отдельном потоке и через канал передается в multipart загрузку
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JobResultStorage {
+
+    private static final String RESULTS_FOLDER = "job-results/";
+
+    /**
+     * Буфер канала между сборкой архива и загрузкой
+     */
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Буфер записи в канал: архив пишется мелкими порциями, а каждая запись в канал синхронизируется
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final MinioClient minioClient;
+    private final PartialContentResponder partialContentResponder;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.upload.part-size:16MB}")
+    private DataSize partSize;
+
+    /**
+     * Запись результата в поток
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Ключ результата задачи в хранилище
+     */
+    public static String resultObjectOf(UUID jobId) {
+        return RESULTS_FOLDER + jobId + ".zip";
+    }
+
+    /**
+     * Сохранение результата неизвестной заранее длины. Если запись или загрузка прервана, объект не создается
+     *
+     * @param objectKey   ключ результата
+     * @param contentType тип содержимого
+     * @param writer      запись содержимого. Runtime исключение из writer (например, отмена задачи)
+     *                    пробрасывается как есть
+     * @return размер сохраненного результата
+     * @throws FileStorageException > не удалось записать или загрузить результат
+     */
+    public long store(String objectKey, String contentType, ContentWriter writer) {
+        AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+        Exception uploadFailure = null;
+        long size = 0;
+
+        // pipeIn закрывается раньше, чем executor дожидается записи: если загрузка прервана,
+        // запись в закрытый канал завершается ошибкой, а не ждет читателя
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             PipedInputStream pipeIn = new PipedInputStream(PIPE_BUFFER_SIZE)) {
+            PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+            executor.execute(() -> writeToPipe(writer, pipeOut, writeFailure));
+
+            CheckedPipeInputStream in = new CheckedPipeInputStream(pipeIn, writeFailure);
+            try {
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectKey)
+                                .stream(in, -1, partSize.toBytes())
+                                .contentType(contentType)
+                                .build());
+                size = in.bytesRead;
+            } catch (Exception e) {
+                uploadFailure = e;
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Не удалось открыть канал записи результата", e);
+        }
+
+        Throwable failure = writeFailure.get();
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (uploadFailure != null) {
+            log.error("Не удалось сохранить результат {}: {}", objectKey, uploadFailure.getMessage());
+            throw new FileStorageException("Не удалось сохранить результат", uploadFailure);
+        }
+        if (failure != null) {
+            throw new FileStorageException("Не удалось записать результат", new IOException(failure));
+        }
+
+        log.info("Результат {} сохранен, {} байт", objectKey, size);
+        return size;
+    }
+
+    /**
+     * Скачивание результата с поддержкой Range, чтобы большой архив можно было докачать
+     *
+     * @param objectKey ключ результата
+     * @param fileName  имя файла для сохранения
+     * @throws FileStorageNotFoundException > результата нет (удален по сроку хранения)
+     */
+    public ResponseEntity<StreamingResponseBody> download(String objectKey, String fileName,
+                                                          HttpServletRequest request, HttpServletResponse response) {
+        StatObjectResponse stat = stat(objectKey);
+        response.setHeader("Content-Disposition", getAttachmentDisposition(fileName));
+        return partialContentResponder.respond(objectKey, stat, request, response);
+    }
+
+    /**
+     * Удаление результата. Ошибка не пробрасывается: результат будет удален при следующей очистке
+     *
+     * @return true, если результат удален
+     */
+    public boolean remove(String objectKey) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectKey)
+                            .build()
+            );
+            return true;
+        } catch (Exception e) {
+            log.error("Не удалось удалить результат задачи {}", objectKey, e);
+            return false;
+        }
+    }
+
+    private StatObjectResponse stat(String objectKey) {
+        try {
+            return minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectKey)
+                            .build()
+            );
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new FileStorageNotFoundException("Результат задачи не найден");
+            }
+            throw new FileStorageException("Ошибка при чтении результата задачи", e);
+        } catch (Exception e) {
+            throw new FileStorageException("Ошибка при чтении результата задачи", e);
+        }
+    }
+
+    /**
+     * Запись в канал. Ошибка сохраняется до закрытия канала, чтобы читатель увидел ее вместо конца потока
+     */
+    private static void writeToPipe(ContentWriter writer, PipedOutputStream pipeOut, AtomicReference<Throwable> writeFailure) {
+        try {
+            OutputStream out = new BufferedOutputStream(pipeOut, WRITE_BUFFER_SIZE);
+            writer.write(out);
+            out.flush();
+        } catch (Throwable e) {
+            writeFailure.set(e);
+        } finally {
+            try {
+                pipeOut.close();
+            } catch (IOException e) {
+                log.debug("Канал записи результата уже закрыт: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Чтение из канала: если запись прервана ошибкой, вместо конца потока выбрасывается исключение,
+     * и загрузка недописанного результата не завершается
+     */
+    private static class CheckedPipeInputStream extends FilterInputStream {
+
+        private final AtomicReference<Throwable> writeFailure;
+
+        private long bytesRead;
+
+        CheckedPipeInputStream(InputStream in, AtomicReference<Throwable> writeFailure) {
+            super(in);
+            this.writeFailure = writeFailure;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                checkWriteFailure();
+            } else {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                checkWriteFailure();
+            } else {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        private void checkWriteFailure() throws IOException {
+            Throwable failure = writeFailure.get();
+            if (failure != null) {
+                throw new IOException("Запись результата прервана", failure);
+            }
+        }
+    }
+}
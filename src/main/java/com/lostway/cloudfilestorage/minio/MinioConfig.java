@@ -1,10 +1,12 @@
 package com.lostway.cloudfilestorage.minio;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Slf4j
 @Configuration
@@ -18,7 +20,14 @@ public class MinioConfig {
     @Value("${minio.secret-key}")
     private String secretKey;
 
+    @Value("${minio.public-url:${minio.url}}")
+    private String publicUrl;
+
+    @Value("${minio.region:us-east-1}")
+    private String region;
+
     @Bean
+    @Primary
     public MinioClient minioClient() {
         log.info("Url: {}, AccessKey: {}, SecretKey: {}", url, accessKey, secretKey);
         return MinioClient.builder()
@@ -26,4 +35,28 @@ public class MinioConfig {
                 .credentials(accessKey, secretKey)
                 .build();
     }
+
+    /**
+     * Клиент только для подписи ссылок, которые отдаются пользователям: адрес хранилища должен быть доступен снаружи.
+     * Регион задан явно, чтобы подпись ссылки не требовала запроса к хранилищу
+     */
+    @Bean
+    public MinioClient minioPresignClient() {
+        return MinioClient.builder()
+                .endpoint(publicUrl)
+                .region(region)
+                .credentials(accessKey, secretKey)
+                .build();
+    }
+
+    /**
+     * Асинхронный клиент для multipart загрузок (части отправляются параллельно)
+     */
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        return MinioAsyncClient.builder()
+                .endpoint(url)
+                .credentials(accessKey, secretKey)
+                .build();
+    }
 }
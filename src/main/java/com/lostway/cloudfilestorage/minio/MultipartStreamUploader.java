@@ -0,0 +1,279 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.cloudfilestorage.exception.dto.FileUploadSizeException;
+import com.lostway.cloudfilestorage.exception.dto.ResourceInStorageAlreadyExists;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.CREATE_IF_ABSENT_HEADERS;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.IF_NONE_MATCH_HEADER;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.isObjectAlreadyExistsError;
+
+/**
+ * Потоковая загрузка в MinIO через multipart upload.
+ * Тело запроса читается один раз, режется на части и отправляется в хранилище без временного файла на диске.
+ * Объекты создаются условной записью (If-None-Match: *): если объект уже есть, хранилище отклоняет запись
+ * и выбрасывается ResourceInStorageAlreadyExists. Существующий файл никогда не перезаписывается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MultipartStreamUploader {
+
+    /**
+     * Минимальный размер части, который принимает S3 API (кроме последней части)
+     */
+    private static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+    private final MinioAsyncClient minioAsyncClient;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.upload.part-size:16MB}")
+    private DataSize partSize;
+
+    @Value("${minio.upload.parallel-parts:4}")
+    private int parallelParts;
+
+    @Value("${minio.upload.max-file-size:1GB}")
+    private DataSize maxFileSize;
+
+    /**
+     * Загрузка потока в хранилище. Части читаются последовательно, а отправляются параллельно.
+     * В памяти одновременно находится не больше parallelParts + 1 частей.
+     *
+     * @param in          поток с содержимым файла
+     * @param objectName  путь, куда загружать
+     * @param contentType тип содержимого
+     * @return количество загруженных байт
+     * @throws FileUploadSizeException        > файл превышает допустимый размер
+     * @throws ResourceInStorageAlreadyExists > объект по этому пути уже существует
+     */
+    public long upload(InputStream in, String objectName, String contentType) {
+        return upload(in, objectName, contentType, () -> true).size();
+    }
+
+    /**
+     * Загрузка потока в хранилище с условием сохранения. Условие проверяется, когда поток уже прочитан полностью,
+     * но объект еще не создан: если условие не выполнено, загруженные части отменяются и объект не появляется.
+     *
+     * @param storeCondition условие, при котором объект сохраняется в хранилище
+     * @return количество прочитанных байт и был ли создан объект
+     * @throws FileUploadSizeException > файл превышает допустимый размер
+     */
+    public StreamUploadResult upload(InputStream in, String objectName, String contentType, BooleanSupplier storeCondition) {
+        int size = getPartSize();
+        byte[] chunk = readPart(in, size);
+
+        if (chunk.length < size) {
+            if (!storeCondition.getAsBoolean()) {
+                return new StreamUploadResult(chunk.length, false);
+            }
+            putSmallObject(chunk, objectName, contentType);
+            return new StreamUploadResult(chunk.length, true);
+        }
+
+        String uploadId = createMultipartUpload(objectName, contentType);
+        log.debug("Начата multipart загрузка '{}', uploadId: {}", objectName, uploadId);
+
+        Semaphore inFlight = new Semaphore(parallelParts);
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        long total = 0;
+
+        try {
+            int partNumber = 1;
+            while (chunk.length > 0) {
+                total += chunk.length;
+                if (total > maxFileSize.toBytes()) {
+                    throw new FileUploadSizeException("Размер файла превышает допустимый: " + maxFileSize);
+                }
+
+                inFlight.acquire();
+                failFastIfAnyPartFailed(parts);
+                parts.add(uploadPartAsync(chunk, chunk.length, objectName, uploadId, partNumber++)
+                        .whenComplete((part, e) -> inFlight.release()));
+
+                chunk = readPart(in, size);
+            }
+
+            Part[] uploadedParts = CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> parts.stream().map(CompletableFuture::join).toArray(Part[]::new))
+                    .get();
+
+            if (!storeCondition.getAsBoolean()) {
+                abortMultipartUpload(objectName, uploadId);
+                return new StreamUploadResult(total, false);
+            }
+
+            completeMultipartUpload(objectName, uploadId, uploadedParts);
+            log.info("Multipart загрузка '{}' завершена: {} частей, {} байт", objectName, uploadedParts.length, total);
+            return new StreamUploadResult(total, true);
+        } catch (FileUploadSizeException | ResourceInStorageAlreadyExists e) {
+            abortMultipartUpload(objectName, uploadId);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipartUpload(objectName, uploadId);
+            throw new FileStorageException("Загрузка файла была прервана", e);
+        } catch (Exception e) {
+            abortMultipartUpload(objectName, uploadId);
+            throw new FileStorageException("Не удалось загрузить файл частями", e);
+        }
+    }
+
+    /**
+     * Результат загрузки потока
+     *
+     * @param size   количество прочитанных байт
+     * @param stored был ли создан объект в хранилище
+     */
+    public record StreamUploadResult(long size, boolean stored) {
+    }
+
+    private int getPartSize() {
+        return (int) Math.max(MIN_PART_SIZE, partSize.toBytes());
+    }
+
+    private byte[] readPart(InputStream in, int size) {
+        try {
+            return in.readNBytes(size);
+        } catch (IOException e) {
+            throw new FileStorageException("Ошибка при чтении тела запроса", e);
+        }
+    }
+
+    private void putSmallObject(byte[] content, String objectName, String contentType) {
+        try {
+            minioAsyncClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(new ByteArrayInputStream(content), content.length, -1)
+                            .contentType(contentType)
+                            .headers(CREATE_IF_ABSENT_HEADERS)
+                            .build()
+            ).get();
+            log.info("Файл '{}' загружен одним запросом: {} байт", objectName, content.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Загрузка файла была прервана", e);
+        } catch (Exception e) {
+            if (isObjectAlreadyExistsError(e)) {
+                throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+            }
+            throw new FileStorageException("Не удалось загрузить файл", e);
+        }
+    }
+
+    /**
+     * Начало multipart загрузки
+     *
+     * @return uploadId, по которому загружаются части
+     */
+    public String createMultipartUpload(String objectName, String contentType) {
+        try {
+            Multimap<String, String> headers = HashMultimap.create();
+            headers.put("Content-Type", contentType);
+            return minioAsyncClient.createMultipartUploadAsync(bucketName, null, objectName, headers, null)
+                    .get()
+                    .result()
+                    .uploadId();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Загрузка файла была прервана", e);
+        } catch (Exception e) {
+            throw new FileStorageException("Не удалось начать multipart загрузку", e);
+        }
+    }
+
+    private CompletableFuture<Part> uploadPartAsync(byte[] chunk, int length, String objectName, String uploadId, int partNumber) throws Exception {
+        return minioAsyncClient.uploadPartAsync(bucketName, null, objectName, chunk, length, uploadId, partNumber, null, null)
+                .thenApply(response -> new Part(response.partNumber(), response.etag()));
+    }
+
+    /**
+     * Загрузка одной части в уже начатую multipart загрузку
+     *
+     * @param chunk  буфер с содержимым части
+     * @param length сколько байт из начала буфера составляют часть
+     * @return загруженная часть (номер + etag)
+     */
+    public Part uploadPart(String objectName, String uploadId, int partNumber, byte[] chunk, int length) {
+        try {
+            return uploadPartAsync(chunk, length, objectName, uploadId, partNumber).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Загрузка части была прервана", e);
+        } catch (Exception e) {
+            throw new FileStorageException("Не удалось загрузить часть " + partNumber, e);
+        }
+    }
+
+    /**
+     * Завершение multipart загрузки: хранилище собирает объект из частей.
+     * Завершение условное, поэтому объект, появившийся за время загрузки частей, не будет перезаписан
+     *
+     * @param parts части, отсортированные по номеру
+     * @throws ResourceInStorageAlreadyExists > объект по этому пути уже существует, загрузка остается открытой
+     */
+    public void completeMultipartUpload(String objectName, String uploadId, Part[] parts) {
+        try {
+            Multimap<String, String> headers = HashMultimap.create();
+            headers.put(IF_NONE_MATCH_HEADER, "*");
+            minioAsyncClient.completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, headers, null).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Завершение загрузки было прервано", e);
+        } catch (Exception e) {
+            if (isObjectAlreadyExistsError(e)) {
+                throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+            }
+            throw new FileStorageException("Не удалось завершить multipart загрузку", e);
+        }
+    }
+
+    /**
+     * Если одна из частей уже не загрузилась, нет смысла дочитывать тело запроса
+     */
+    private void failFastIfAnyPartFailed(List<CompletableFuture<Part>> parts) {
+        for (CompletableFuture<Part> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                part.join();
+            }
+        }
+    }
+
+    /**
+     * Отмена multipart загрузки, загруженные части удаляются хранилищем
+     */
+    public void abortMultipartUpload(String objectName, String uploadId) {
+        try {
+            minioAsyncClient.abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null).get();
+            log.info("Multipart загрузка '{}' отменена", objectName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Не удалось отменить multipart загрузку '{}', uploadId: {}", objectName, uploadId, e);
+        } catch (Exception e) {
+            log.error("Не удалось отменить multipart загрузку '{}', uploadId: {}", objectName, uploadId, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.OperationCancelledException;
+
+/**
+ * Ход долгой операции над папкой (удаление, перемещение, архивация): счетчики выполненной работы и запрос отмены.
+ * Вызывается из нескольких потоков одновременно
+ */
+public interface OperationProgress {
+
+    /**
+     * Операция без отслеживания хода и без отмены (синхронные запросы)
+     */
+    OperationProgress NONE = new OperationProgress() {
+        @Override
+        public void onObjectsDone(long objects, long bytes) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Общий объем работы, если он известен заранее
+     */
+    default void onTotals(long objects, long bytes) {
+    }
+
+    /**
+     * Обработаны очередные объекты
+     *
+     * @param objects количество объектов
+     * @param bytes   их суммарный размер
+     */
+    void onObjectsDone(long objects, long bytes);
+
+    /**
+     * Запрошена ли отмена операции
+     */
+    boolean isCancelled();
+
+    /**
+     * @throws OperationCancelledException > запрошена отмена операции
+     */
+    default void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new OperationCancelledException("Операция отменена");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.controller.dto.DirectUploadDTO;
+import com.lostway.cloudfilestorage.controller.dto.PresignedUrlDTO;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.http.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getAttachmentDisposition;
+
+/**
+ * Подписанные ссылки на объекты MinIO. Клиент скачивает и загружает файлы напрямую в хранилище,
+ * а сервис только проверяет права и выдает короткоживущую ссылку.
+ */
+@Slf4j
+@Service
+public class PresignedUrlService {
+
+    /**
+     * Ответ на скачивание: перенаправление на ссылку или JSON со ссылкой
+     */
+    public enum ResponseMode {
+        REDIRECT,
+        JSON
+    }
+
+    private final MinioClient presignClient;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.presign.enabled:false}")
+    private boolean enabled;
+
+    @Value("${minio.presign.expiry:5m}")
+    private Duration expiry;
+
+    @Value("${minio.presign.response:REDIRECT}")
+    private ResponseMode responseMode;
+
+    @Value("${minio.public-url:${minio.url}}")
+    private String publicUrl;
+
+    @Value("${minio.presign.upload-expiry:15m}")
+    private Duration uploadExpiry;
+
+    public PresignedUrlService(@Qualifier("minioPresignClient") MinioClient presignClient) {
+        this.presignClient = presignClient;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ResponseMode getResponseMode() {
+        return responseMode;
+    }
+
+    /**
+     * Подписанная ссылка на скачивание объекта. Имя файла и тип содержимого передаются в ссылке,
+     * чтобы хранилище отдало файл с правильным Content-Disposition
+     *
+     * @param objectKey ключ объекта в MinIO
+     * @param fileName  имя файла для сохранения у клиента
+     * @return ссылка и время, до которого она действует
+     */
+    public PresignedUrlDTO presignDownload(String objectKey, String fileName) {
+        try {
+            Instant expiresAt = Instant.now().plus(expiry);
+            String url = presignClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(bucketName)
+                            .object(objectKey)
+                            .expiry((int) expiry.toSeconds())
+                            .extraQueryParams(Map.of(
+                                    "response-content-disposition", getAttachmentDisposition(fileName),
+                                    "response-content-type", MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                            .build()
+            );
+            log.debug("Выдана подписанная ссылка на '{}' до {}", objectKey, expiresAt);
+            return new PresignedUrlDTO(url, expiresAt);
+        } catch (Exception e) {
+            throw new FileStorageException("Не удалось получить ссылку на скачивание", e);
+        }
+    }
+
+    /**
+     * Подписанная политика для загрузки формой (POST) напрямую в хранилище.
+     * Политика разрешает загрузить только один объект с заданным ключом, типом и размером
+     *
+     * @param objectKey   ключ, под которым хранилище примет файл
+     * @param contentType тип содержимого, который должен передать клиент
+     * @param maxSize     максимальный размер файла
+     * @param sessionId   сессия загрузки, которую клиент подтвердит после загрузки
+     * @return адрес формы, поля формы и время, до которого политика действует
+     */
+    public DirectUploadDTO presignUpload(String objectKey, String contentType, long maxSize, UUID sessionId) {
+        try {
+            ZonedDateTime expiresAt = ZonedDateTime.now(ZoneOffset.UTC).plus(uploadExpiry);
+            PostPolicy policy = new PostPolicy(bucketName, expiresAt);
+            policy.addEqualsCondition("key", objectKey);
+            policy.addEqualsCondition("Content-Type", contentType);
+            policy.addContentLengthRangeCondition(1, maxSize);
+
+            Map<String, String> formData = new HashMap<>(presignClient.getPresignedPostFormData(policy));
+            formData.put("key", objectKey);
+            formData.put("Content-Type", contentType);
+
+            log.debug("Выдана политика загрузки '{}' до {}", objectKey, expiresAt);
+            return new DirectUploadDTO(sessionId, publicUrl + "/" + bucketName, formData, expiresAt.toInstant());
+        } catch (Exception e) {
+            throw new FileStorageException("Не удалось получить ссылку на загрузку", e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.exception.dto.OperationCancelledException;
+import com.lostway.cloudfilestorage.repository.StorageJobRepository;
+import com.lostway.cloudfilestorage.repository.entity.StorageJob;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Исполнитель фоновых задач над папками на этом узле. Одновременно выполняется не больше workers задач.
+ * Задача забирается атомарной сменой статуса QUEUED --> RUNNING, поэтому несколько узлов не выполнят ее дважды.
+ * <p>
+ * Счетчики хода копятся в памяти и сбрасываются в базу раз в progress-interval (см. StorageJobScheduler),
+ * тогда же перечитывается запрос отмены. Обновление хода одновременно служит сигналом, что исполнитель жив.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageJobExecutor {
+
+    private final StorageJobRepository storageJobRepository;
+    private final FileStorageService fileStorageService;
+    private final JobResultStorage jobResultStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jobs.workers:4}")
+    private int workers;
+
+    @Value("${jobs.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    private Semaphore slots;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<UUID, JobProgress> running = new ConcurrentHashMap<>();
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(workers);
+        Gauge.builder("storage.jobs.running", running, Map::size)
+                .description("Фоновые задачи, которые выполняются на этом узле")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Остановка узла: выполняемые задачи прерываются на ближайшей проверке отмены и возвращаются в очередь,
+     * их продолжит этот или другой узел
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Фоновые задачи не остановились за {}, они будут возвращены в очередь по таймауту", shutdownTimeout);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Сколько задач узел может взять прямо сейчас
+     */
+    public int freeSlots() {
+        return stopping ? 0 : slots.availablePermits();
+    }
+
+    /**
+     * Запуск задачи, если есть свободный исполнитель и задачу еще не забрал другой узел
+     *
+     * @return true, если задача запущена на этом узле
+     */
+    public boolean tryStart(UUID jobId) {
+        if (stopping || !slots.tryAcquire()) {
+            return false;
+        }
+
+        Integer claimed = transactionTemplate.execute(status -> storageJobRepository.claim(
+                jobId, StorageJobStatus.QUEUED, StorageJobStatus.RUNNING, Instant.now()));
+        if (claimed == null || claimed == 0) {
+            slots.release();
+            return false;
+        }
+
+        executor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                running.remove(jobId);
+                slots.release();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Сброс хода выполняемых задач в базу и чтение запросов отмены
+     */
+    public void reportProgress() {
+        running.values().forEach(this::flush);
+    }
+
+    private void run(UUID jobId) {
+        StorageJob job = storageJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            log.warn("Задача {} удалена до запуска", jobId);
+            return;
+        }
+
+        JobProgress progress = new JobProgress(jobId);
+        running.put(jobId, progress);
+        log.info("Запущена задача {} {}: {}", job.getType(), jobId, job.getSourcePath());
+
+        try {
+            String resultObject = execute(job, progress);
+            complete(progress, StorageJobStatus.SUCCEEDED, null, resultObject);
+        } catch (OperationCancelledException e) {
+            if (progress.lost) {
+                log.warn("Задача {} прервана: ее забрал другой исполнитель", jobId);
+            } else if (stopping) {
+                flush(progress);
+                transactionTemplate.execute(status -> storageJobRepository.claim(
+                        jobId, StorageJobStatus.RUNNING, StorageJobStatus.QUEUED, Instant.now()));
+                log.info("Задача {} возвращена в очередь из-за остановки узла", jobId);
+            } else {
+                complete(progress, StorageJobStatus.CANCELLED, e.getMessage(), null);
+            }
+        } catch (Exception e) {
+            log.error("Задача {} {} завершилась ошибкой", job.getType(), jobId, e);
+            complete(progress, StorageJobStatus.FAILED, getErrorMessage(e), null);
+        }
+    }
+
+    /**
+     * @return ключ результата в хранилище или null, если у задачи нет результата
+     */
+    private String execute(StorageJob job, JobProgress progress) {
+        return switch (job.getType()) {
+            case DELETE -> {
+                fileStorageService.deleteResource(job.getSourcePath(), job.getOwnerFolder(), progress);
+                yield null;
+            }
+            case MOVE -> {
+                fileStorageService.moveResolved(job.getSourcePath(), job.getTargetPath(), progress);
+                yield null;
+            }
+            case ARCHIVE -> {
+                String resultObject = JobResultStorage.resultObjectOf(job.getJobId());
+                jobResultStorage.store(resultObject, "application/zip",
+                        out -> fileStorageService.writeFolderArchive(job.getSourcePath(), out, progress));
+                yield resultObject;
+            }
+        };
+    }
+
+    private void complete(JobProgress progress, StorageJobStatus status, String error, String resultObject) {
+        flush(progress);
+        Integer updated = transactionTemplate.execute(tx -> storageJobRepository.finish(
+                progress.jobId, StorageJobStatus.RUNNING, status, error, resultObject, Instant.now()));
+
+        if (updated == null || updated == 0) {
+            log.warn("Задача {} уже не выполняется на этом узле, итог {} не сохранен", progress.jobId, status);
+            if (resultObject != null) {
+                jobResultStorage.remove(resultObject);
+            }
+            return;
+        }
+        log.info("Задача {} завершена: {}, объектов {}, байт {}", progress.jobId, status,
+                progress.objectsDone.get(), progress.bytesDone.get());
+    }
+
+    private void flush(JobProgress progress) {
+        try {
+            Integer updated = transactionTemplate.execute(status -> storageJobRepository.updateProgress(
+                    progress.jobId, StorageJobStatus.RUNNING,
+                    progress.objectsDone.get(), progress.bytesDone.get(),
+                    progress.objectsTotal, progress.bytesTotal, Instant.now()));
+            if (updated == null || updated == 0) {
+                progress.lost = true;
+                return;
+            }
+            progress.cancelRequested = storageJobRepository.isCancelRequested(progress.jobId);
+        } catch (Exception e) {
+            log.error("Не удалось обновить ход задачи {}: {}", progress.jobId, e.getMessage());
+        }
+    }
+
+    private static String getErrorMessage(Exception e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getMessage() == null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Ход задачи в памяти исполнителя. Отмена видна операции не позже чем через progress-interval после запроса
+     */
+    private class JobProgress implements OperationProgress {
+
+        private final UUID jobId;
+
+        private final AtomicLong objectsDone = new AtomicLong();
+
+        private final AtomicLong bytesDone = new AtomicLong();
+
+        private volatile Long objectsTotal;
+
+        private volatile Long bytesTotal;
+
+        private volatile boolean cancelRequested;
+
+        /**
+         * Задача больше не числится за этим узлом (например, возвращена в очередь по таймауту)
+         */
+        private volatile boolean lost;
+
+        JobProgress(UUID jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void onTotals(long objects, long bytes) {
+            objectsTotal = objects;
+            bytesTotal = bytes;
+        }
+
+        @Override
+        public void onObjectsDone(long objects, long bytes) {
+            objectsDone.addAndGet(objects);
+            bytesDone.addAndGet(bytes);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested || lost || stopping;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.controller.dto.StorageJobDTO;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageNotFoundException;
+import com.lostway.cloudfilestorage.exception.dto.StorageJobStateException;
+import com.lostway.cloudfilestorage.repository.StorageJobRepository;
+import com.lostway.cloudfilestorage.repository.entity.StorageJob;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobStatus;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobType;
+import com.lostway.cloudfilestorage.security.PrincipalResolver;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getNameFromPath;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.getRootFolder;
+
+/**
+ * Долгие операции над папками (удаление, перемещение, архивация) в фоне. Запрос только проверяет пути
+ * и ставит задачу в очередь, клиент опрашивает ее ход и может отменить ее.
+ * Готовый архив сохраняется в хранилище и скачивается отдельным запросом
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageJobService {
+
+    private final FileStorageService fileStorageService;
+    private final StorageJobExecutor storageJobExecutor;
+    private final StorageJobRepository storageJobRepository;
+    private final JobResultStorage jobResultStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final PrincipalResolver principalResolver;
+
+    /**
+     * Удаление файла/папки в фоне
+     *
+     * @param path путь до файла/папки
+     * @throws FileStorageNotFoundException > ресурс не существует
+     */
+    public StorageJobDTO submitDelete(String path, HttpServletRequest request) {
+        String pathWithUser = fileStorageService.getExistingResourcePath(path, request);
+        return submit(StorageJobType.DELETE, pathWithUser, null, request);
+    }
+
+    /**
+     * Перемещение/переименование файла/папки в фоне. Пути проверяются сразу, как и при синхронном перемещении
+     *
+     * @param from текущий путь ресурса
+     * @param to   новый путь ресурса
+     */
+    public StorageJobDTO submitMove(String from, String to, HttpServletRequest request) {
+        FileStorageService.MovePaths paths = fileStorageService.prepareMove(from, to, request);
+        return submit(StorageJobType.MOVE, paths.oldFullPath(), paths.newFullPath(), request);
+    }
+
+    /**
+     * Сборка ZIP архива папки в хранилище
+     *
+     * @param path путь до папки
+     */
+    public StorageJobDTO submitArchive(String path, HttpServletRequest request) {
+        String folderPath = fileStorageService.getExistingFolderPath(path, request);
+        return submit(StorageJobType.ARCHIVE, folderPath, null, request);
+    }
+
+    /**
+     * Состояние и ход задачи
+     */
+    public StorageJobDTO getJob(UUID jobId, HttpServletRequest request) {
+        return toDto(getUserJob(jobId, request));
+    }
+
+    /**
+     * Отмена задачи. Задача в очереди отменяется сразу, выполняемая - на ближайшей проверке отмены.
+     * Уже сделанное не откатывается: отмененное перемещение папки продолжается повторным перемещением
+     *
+     * @throws StorageJobStateException > задача уже завершена
+     */
+    public StorageJobDTO cancel(UUID jobId, HttpServletRequest request) {
+        StorageJob job = getUserJob(jobId, request);
+        if (job.getStatus().isFinished()) {
+            throw new StorageJobStateException("Задача уже завершена: " + job.getStatus());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            if (storageJobRepository.finish(jobId, StorageJobStatus.QUEUED, StorageJobStatus.CANCELLED,
+                    "Задача отменена до запуска", null, now) == 0) {
+                storageJobRepository.requestCancel(jobId, StorageJobStatus.RUNNING, now);
+            }
+        });
+        log.info("Запрошена отмена задачи {}", jobId);
+
+        return getJob(jobId, request);
+    }
+
+    /**
+     * Скачивание архива, собранного задачей
+     *
+     * @throws StorageJobStateException > задача не архивация или еще не завершена успешно
+     */
+    public ResponseEntity<StreamingResponseBody> downloadResult(UUID jobId, HttpServletRequest request,
+                                                                HttpServletResponse response) {
+        StorageJob job = getUserJob(jobId, request);
+        if (job.getType() != StorageJobType.ARCHIVE) {
+            throw new StorageJobStateException("У задачи " + job.getType() + " нет результата для скачивания");
+        }
+        if (job.getStatus() != StorageJobStatus.SUCCEEDED || job.getResultObject() == null) {
+            throw new StorageJobStateException("Архив еще не готов: " + job.getStatus());
+        }
+
+        return jobResultStorage.download(job.getResultObject(), getNameFromPath(job.getSourcePath()) + ".zip",
+                request, response);
+    }
+
+    private StorageJobDTO submit(StorageJobType type, String sourcePath, String targetPath, HttpServletRequest request) {
+        Instant now = Instant.now();
+        StorageJob job = storageJobRepository.save(StorageJob.builder()
+                .jobId(UUID.randomUUID())
+                .ownerFolder(getRootFolder(request, principalResolver))
+                .type(type)
+                .status(StorageJobStatus.QUEUED)
+                .sourcePath(sourcePath)
+                .targetPath(targetPath)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("Создана задача {} {}: {}", type, job.getJobId(), sourcePath);
+
+        // Если на узле есть свободный исполнитель, задача стартует сразу, иначе ее заберет планировщик
+        if (storageJobExecutor.tryStart(job.getJobId())) {
+            job = storageJobRepository.findById(job.getJobId()).orElse(job);
+        }
+        return toDto(job);
+    }
+
+    /**
+     * Задачу видит только создавший ее пользователь (контролируется rootFolder)
+     */
+    private StorageJob getUserJob(UUID jobId, HttpServletRequest request) {
+        String rootFolder = getRootFolder(request, principalResolver);
+        return storageJobRepository.findById(jobId)
+                .filter(job -> job.getOwnerFolder().equals(rootFolder))
+                .orElseThrow(() -> new FileStorageNotFoundException("Задача не найдена"));
+    }
+
+    private static StorageJobDTO toDto(StorageJob job) {
+        return new StorageJobDTO(
+                job.getJobId(),
+                job.getType(),
+                job.getStatus(),
+                toUserPath(job.getSourcePath(), job.getOwnerFolder()),
+                toUserPath(job.getTargetPath(), job.getOwnerFolder()),
+                job.getObjectsDone(),
+                job.getObjectsTotal(),
+                job.getBytesDone(),
+                job.getBytesTotal(),
+                job.isCancelRequested(),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    /**
+     * Путь без корневой папки пользователя, как его передавал клиент
+     */
+    private static String toUserPath(String fullPath, String rootFolder) {
+        if (fullPath == null) {
+            return null;
+        }
+        return fullPath.startsWith(rootFolder) ? fullPath.substring(rootFolder.length()) : fullPath;
+    }
+}
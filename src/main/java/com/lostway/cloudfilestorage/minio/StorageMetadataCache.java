@@ -0,0 +1,112 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.minio.StatObjectResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Кэш метаданных хранилища в памяти: существование файлов/папок и статистика файлов (statObject).
+ * Записи живут ttl и точечно сбрасываются сценариями, которые сами меняют хранилище (загрузка, удаление,
+ * перемещение, создание папок). Изменения, сделанные другими экземплярами сервиса, видны не позже чем через ttl.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageMetadataCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${minio.metadata-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${minio.metadata-cache.ttl:10s}")
+    private Duration ttl;
+
+    @Value("${minio.metadata-cache.max-size:100000}")
+    private long maxSize;
+
+    private Cache<String, Boolean> existence;
+
+    private Cache<String, StatObjectResponse> stats;
+
+    @PostConstruct
+    void init() {
+        existence = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        stats = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, existence, "storage.metadata.exists");
+        CaffeineCacheMetrics.monitor(meterRegistry, stats, "storage.metadata.stat");
+    }
+
+    /**
+     * Существует ли файл или папка
+     *
+     * @param objectName полный путь до файла/папки
+     * @param loader     проверка в хранилище, если ответа нет в кэше
+     */
+    public boolean exists(String objectName, Function<String, Boolean> loader) {
+        return enabled
+                ? existence.get(objectName, loader)
+                : loader.apply(objectName);
+    }
+
+    /**
+     * Статистика файла. Ошибки (в том числе "файл не найден") не кэшируются
+     *
+     * @param objectKey ключ объекта в MinIO
+     * @param loader    запрос статистики в хранилище, если ответа нет в кэше
+     */
+    public StatObjectResponse stat(String objectKey, Function<String, StatObjectResponse> loader) {
+        return enabled
+                ? stats.get(objectKey, loader)
+                : loader.apply(objectKey);
+    }
+
+    /**
+     * Файл или папка записаны/удалены: сбрасывается сам путь и все папки на пути к нему
+     * (папка, которой не было, могла появиться вместе с файлом)
+     */
+    public void invalidate(String objectName) {
+        if (!enabled) {
+            return;
+        }
+
+        existence.invalidate(objectName);
+        stats.invalidate(objectName);
+        for (int slash = objectName.indexOf('/'); slash >= 0 && slash < objectName.length() - 1;
+             slash = objectName.indexOf('/', slash + 1)) {
+            existence.invalidate(objectName.substring(0, slash + 1));
+        }
+    }
+
+    /**
+     * Папка удалена или перемещена: сбрасываются все пути внутри нее и папки на пути к ней
+     */
+    public void invalidateAllUnder(String folderPath) {
+        if (!enabled) {
+            return;
+        }
+
+        existence.asMap().keySet().removeIf(key -> key.startsWith(folderPath));
+        stats.asMap().keySet().removeIf(key -> key.startsWith(folderPath));
+        invalidate(folderPath);
+    }
+}
@@ -0,0 +1,506 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.repository.StorageObjectRepository;
+import com.lostway.cloudfilestorage.repository.entity.StorageObject;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
+
+/**
+ * Индекс объектов хранилища в PostgreSQL. Листинг папок, проверки существования и поиск читают индекс
+ * вместо listObjects/statObject. Индекс обновляется в тех же сценариях, которые пишут в хранилище
+ * (загрузка, удаление, перемещение, создание папок), а расхождения с бакетом исправляет периодическая сверка.
+ * <p>
+ * Источником истины остается хранилище: если обновить индекс не удалось, ошибка только логируется,
+ * запись будет исправлена при следующей сверке.
+ * <p>
+ * Чтение из индекса включается только после первой успешной сверки (признак хранится в storage_index_state).
+ * До этого индекс заполняется, но листинг и проверки существования идут в MinIO: иначе после включения индекса
+ * на существующем бакете все файлы выглядели бы отсутствующими, пока идет полная сверка.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageObjectIndex {
+
+    /**
+     * Сверяются только папки пользователей (blob-ы и временные объекты в индекс не попадают)
+     */
+    private static final Pattern USER_ROOT_FOLDER = Pattern.compile("^user-\\d+-files/");
+
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    /**
+     * Как часто узел, у которого индекс еще не готов, перечитывает признак готовности (его мог выставить другой узел)
+     */
+    private static final Duration READY_CHECK_INTERVAL = Duration.ofSeconds(10);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO storage_objects
+                (object_name, owner_folder, parent_path, name, is_folder, size, etag, created_at, updated_at, verified_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, now(), now(), ?)
+            ON CONFLICT (object_name) DO UPDATE
+            SET is_folder   = EXCLUDED.is_folder,
+                size        = EXCLUDED.size,
+                etag        = EXCLUDED.etag,
+                updated_at  = CASE
+                                  WHEN storage_objects.size <> EXCLUDED.size
+                                      OR storage_objects.etag IS DISTINCT FROM EXCLUDED.etag THEN now()
+                                  ELSE storage_objects.updated_at
+                              END,
+                verified_at = GREATEST(storage_objects.verified_at, EXCLUDED.verified_at)
+            """;
+
+    private final MinioClient minioClient;
+    private final StorageObjectRepository storageObjectRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    /**
+     * Пути, удаленные или перемещенные этим узлом во время сверки. Сверка могла прочитать их из листинга
+     * до удаления и вернуть в индекс, поэтому в конце сверки такие записи удаляются повторно
+     */
+    private final Set<String> removedDuringReconcile = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready;
+
+    private volatile Instant nextReadyCheck = Instant.MIN;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.index.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Можно ли читать из индекса: индекс включен и хотя бы одна полная сверка завершилась успешно
+     */
+    public boolean isReady() {
+        if (!enabled) {
+            return false;
+        }
+        if (!ready && Instant.now().isAfter(nextReadyCheck)) {
+            nextReadyCheck = Instant.now().plus(READY_CHECK_INTERVAL);
+            ready = loadReady();
+        }
+        return ready;
+    }
+
+    /**
+     * Пока индекс выключен, он не обновляется. Признак готовности сбрасывается, чтобы после включения
+     * чтение из индекса началось только после новой полной сверки
+     */
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            runQuietly("storage_index_state", () -> jdbcTemplate.update("DELETE FROM storage_index_state"));
+        }
+    }
+
+    /**
+     * Запись в индексе (файл или папка)
+     */
+    public Optional<StorageObject> find(String objectName) {
+        return storageObjectRepository.findById(objectName);
+    }
+
+    /**
+     * Проверка существования файла или папки
+     */
+    public boolean exists(String objectName) {
+        return storageObjectRepository.existsById(objectName);
+    }
+
+    /**
+     * Файлы и папки, которые лежат непосредственно в папке, в порядке ключей хранилища
+     *
+     * @param afterObjectName путь, после которого начинать (null --> с начала папки)
+     * @param limit           максимальное количество записей
+     */
+    public List<StorageObject> findChildren(String folderPath, String afterObjectName, int limit) {
+        return storageObjectRepository.findChildrenAfter(folderPath, afterObjectName == null ? "" : afterObjectName, limit);
+    }
+
+    /**
+     * Поиск файлов и папок пользователя по части имени без учета регистра (индекс pg_trgm).
+     * Сначала идут точные совпадения, затем совпадения по началу имени, затем остальные; внутри группы -
+     * более короткие имена. Порядок однозначный, поэтому страницы листаются по ключу (keyset), а не по смещению
+     *
+     * @param rootFolder      корневая папка пользователя
+     * @param query           часть имени
+     * @param limit           максимальное количество результатов
+     * @param afterObjectName последний результат предыдущей страницы (null --> первая страница)
+     */
+    public List<StorageObject> search(String rootFolder, String query, int limit, String afterObjectName) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        String prefixPattern = toPrefixLikePattern(lowerQuery);
+
+        List<Object> params = new ArrayList<>(List.of(lowerQuery, prefixPattern, rootFolder, toSubstringLikePattern(lowerQuery)));
+        String afterClause = "";
+        if (afterObjectName != null) {
+            String afterName = getNameFromPath(afterObjectName);
+            afterClause = """
+                    WHERE (match_rank, char_length(name), lower(name), object_name) >
+                          (CASE WHEN lower(?) = ? THEN 0 WHEN lower(?) LIKE ? ESCAPE '\\' THEN 1 ELSE 2 END,
+                           char_length(?), lower(?), ?)
+                    """;
+            params.addAll(List.of(afterName, lowerQuery, afterName, prefixPattern, afterName, afterName, afterObjectName));
+        }
+        params.add(limit);
+
+        return jdbcTemplate.query("""
+                        WITH matches AS (
+                            SELECT *,
+                                   CASE
+                                       WHEN lower(name) = ? THEN 0
+                                       WHEN lower(name) LIKE ? ESCAPE '\\' THEN 1
+                                       ELSE 2
+                                   END AS match_rank
+                            FROM storage_objects
+                            WHERE owner_folder = ? AND lower(name) LIKE ? ESCAPE '\\' AND object_name <> owner_folder
+                        )
+                        SELECT * FROM matches
+                        """ + afterClause + """
+                        ORDER BY match_rank, char_length(name), lower(name), object_name
+                        LIMIT ?
+                        """,
+                StorageObjectIndex::mapStorageObject,
+                params.toArray());
+    }
+
+    /**
+     * Файл записан в хранилище. Вместе с файлом в индекс добавляются все папки на его пути
+     *
+     * @param etag ETag объекта или null, если он неизвестен (заполнится при сверке)
+     */
+    public void recordFile(String objectName, long size, String etag) {
+        if (!enabled) {
+            return;
+        }
+
+        List<IndexedObject> objects = new ArrayList<>();
+        addWithParentFolders(objects, new HashSet<>(), new IndexedObject(objectName, false, size, etag));
+        upsertQuietly(objects, objectName);
+    }
+
+    /**
+     * Папка создана в хранилище
+     */
+    public void recordFolder(String folderPath) {
+        if (!enabled) {
+            return;
+        }
+
+        List<IndexedObject> objects = new ArrayList<>();
+        addWithParentFolders(objects, new HashSet<>(), new IndexedObject(folderPath, true, 0, null));
+        upsertQuietly(objects, folderPath);
+    }
+
+    /**
+     * Файл удален из хранилища
+     */
+    public void remove(String objectName) {
+        if (!enabled) {
+            return;
+        }
+
+        trackRemoval(objectName);
+        runQuietly(objectName, () -> storageObjectRepository.deleteById(objectName));
+    }
+
+    /**
+     * Папка и все ее содержимое удалены из хранилища
+     */
+    public void removeAllUnder(String folderPath) {
+        if (!enabled) {
+            return;
+        }
+
+        trackRemoval(folderPath);
+        runQuietly(folderPath, () -> storageObjectRepository.deleteAllUnder(toPrefixLikePattern(folderPath)));
+    }
+
+    /**
+     * Файл перемещен
+     */
+    public void move(String oldObjectName, String newObjectName) {
+        if (!enabled) {
+            return;
+        }
+
+        trackRemoval(oldObjectName);
+        runQuietly(newObjectName, () -> storageObjectRepository.move(
+                oldObjectName, newObjectName, getParentFolders(newObjectName), getNameFromPath(newObjectName)));
+    }
+
+    /**
+     * Папка перемещена вместе со всем содержимым. Папки на новом пути добавляются в индекс
+     */
+    public void moveAllUnder(String oldFolderPath, String newFolderPath) {
+        if (!enabled) {
+            return;
+        }
+
+        trackRemoval(oldFolderPath);
+        runQuietly(newFolderPath, () -> {
+            storageObjectRepository.moveAllUnder(oldFolderPath, newFolderPath, toPrefixLikePattern(oldFolderPath));
+            storageObjectRepository.move(
+                    oldFolderPath, newFolderPath, getParentFolders(newFolderPath), getNameFromPath(newFolderPath));
+        });
+        recordFolder(newFolderPath);
+    }
+
+    /**
+     * Сверка индекса с бакетом: все объекты папок пользователей (и ссылки на blob-ы) перезаписываются в индекс
+     * пачками, после чего удаляются записи, которых в бакете не оказалось. Записи, добавленные или перемещенные
+     * во время сверки, не удаляются: у них verified_at позже начала сверки. Записи, удаленные этим узлом во время
+     * сверки, удаляются повторно, если их вернула пачка сверки. Если листинг прервался, удаление не выполняется.
+     * После первой успешной сверки индекс становится доступен для чтения.
+     */
+    public void reconcile() {
+        if (!enabled || !reconciling.compareAndSet(false, true)) {
+            return;
+        }
+
+        removedDuringReconcile.clear();
+        try {
+            Instant runStartedAt = Instant.now();
+            Set<String> seenFolders = new HashSet<>();
+            List<IndexedObject> batch = new ArrayList<>(RECONCILE_BATCH_SIZE);
+            long listed = 0;
+
+            Iterable<Result<Item>> objects = minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .recursive(true)
+                            .build());
+
+            for (Result<Item> result : objects) {
+                Item item = result.get();
+                if (!USER_ROOT_FOLDER.matcher(item.objectName()).lookingAt()) {
+                    continue;
+                }
+
+                addWithParentFolders(batch, seenFolders, new IndexedObject(
+                        item.objectName(), isFolderKey(item.objectName()), item.size(), normalizeEtag(item.etag())));
+                listed++;
+
+                if (batch.size() >= RECONCILE_BATCH_SIZE) {
+                    upsert(batch, runStartedAt);
+                    batch.clear();
+                }
+            }
+            upsert(batch, runStartedAt);
+
+            int references = upsertReferences(runStartedAt);
+            int restored = removeRestoredDuringReconcile(runStartedAt);
+            Integer removed = transactionTemplate.execute(status ->
+                    storageObjectRepository.deleteNotVerifiedSince(runStartedAt));
+            if (restored > 0) {
+                log.info("Удалены записи, возвращенные сверкой после удаления: {}", restored);
+            }
+            markReady();
+
+            log.info("Сверка индекса хранилища завершена: объектов {}, ссылок на blob-ы {}, удалено устаревших записей {}",
+                    listed, references, removed);
+        } catch (Exception e) {
+            log.error("Сверка индекса хранилища прервана, устаревшие записи не удалялись", e);
+        } finally {
+            reconciling.set(false);
+            removedDuringReconcile.clear();
+        }
+    }
+
+    private void trackRemoval(String objectName) {
+        if (reconciling.get()) {
+            removedDuringReconcile.add(objectName);
+        }
+    }
+
+    /**
+     * Повторное удаление путей, удаленных во время сверки. Копия множества берется после всех пачек,
+     * поэтому удаления, сделанные до последней пачки, уже в ней учтены
+     */
+    private int removeRestoredDuringReconcile(Instant runStartedAt) {
+        List<String> removedPaths = List.copyOf(removedDuringReconcile);
+        if (removedPaths.isEmpty()) {
+            return 0;
+        }
+
+        Integer restored = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (String path : removedPaths) {
+                count += isFolderKey(path)
+                        ? storageObjectRepository.deleteReconciledUnder(toPrefixLikePattern(path), runStartedAt)
+                        : storageObjectRepository.deleteReconciled(path, runStartedAt);
+            }
+            return count;
+        });
+        return restored == null ? 0 : restored;
+    }
+
+    private boolean loadReady() {
+        try {
+            Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM storage_index_state", Integer.class);
+            return count != null && count > 0;
+        } catch (Exception e) {
+            log.error("Не удалось прочитать признак готовности индекса хранилища", e);
+            return false;
+        }
+    }
+
+    private void markReady() {
+        if (ready) {
+            return;
+        }
+        jdbcTemplate.update("""
+                INSERT INTO storage_index_state (id, ready_at)
+                VALUES (1, now())
+                ON CONFLICT (id) DO NOTHING
+                """);
+        ready = true;
+        log.info("Индекс хранилища заполнен, чтение переключено на индекс");
+    }
+
+    /**
+     * Файлы, хранящиеся с дедупликацией, в бакете лежат под ключами blob-ов, поэтому берутся из file_references
+     */
+    private int upsertReferences(Instant verifiedAt) {
+        return jdbcTemplate.update("""
+                        INSERT INTO storage_objects
+                            (object_name, owner_folder, parent_path, name, is_folder, size, etag, created_at, updated_at, verified_at)
+                        SELECT object_name, substring(object_name FROM 1 FOR position('/' IN object_name)),
+                               parent_path, file_name, false, size, NULL, now(), now(), ?
+                        FROM file_references
+                        ON CONFLICT (object_name) DO UPDATE
+                        SET is_folder   = false,
+                            size        = EXCLUDED.size,
+                            verified_at = GREATEST(storage_objects.verified_at, EXCLUDED.verified_at)
+                        """,
+                OffsetDateTime.ofInstant(verifiedAt, ZoneOffset.UTC));
+    }
+
+    private void upsertQuietly(List<IndexedObject> objects, String objectName) {
+        runQuietly(objectName, () -> upsert(objects, Instant.now()));
+    }
+
+    private void runQuietly(String objectName, Runnable update) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> update.run());
+        } catch (Exception e) {
+            log.error("Не удалось обновить индекс хранилища для '{}', запись будет исправлена сверкой", objectName, e);
+        }
+    }
+
+    /**
+     * Пакетная вставка/обновление записей. Записи сортируются по пути, чтобы параллельные пачки
+     * с общими папками блокировали строки в одном порядке
+     */
+    private void upsert(List<IndexedObject> objects, Instant verifiedAt) {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        List<IndexedObject> sorted = objects.stream()
+                .sorted(Comparator.comparing(IndexedObject::objectName))
+                .toList();
+        OffsetDateTime verifiedAtUtc = OffsetDateTime.ofInstant(verifiedAt, ZoneOffset.UTC);
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, sorted, sorted.size(), (ps, object) -> {
+            ps.setString(1, object.objectName());
+            ps.setString(2, getOwnerFolder(object.objectName()));
+            ps.setString(3, getParentFolders(object.objectName()));
+            ps.setString(4, getNameFromPath(object.objectName()));
+            ps.setBoolean(5, object.folder());
+            ps.setLong(6, object.size());
+            ps.setString(7, object.etag());
+            ps.setObject(8, verifiedAtUtc);
+        });
+    }
+
+    /**
+     * Добавление объекта и всех папок на его пути. Папки, уже добавленные ранее (seenFolders), пропускаются
+     */
+    private static void addWithParentFolders(List<IndexedObject> objects, Set<String> seenFolders, IndexedObject object) {
+        String objectName = object.objectName();
+        for (int slash = objectName.indexOf('/'); slash >= 0 && slash < objectName.length() - 1;
+             slash = objectName.indexOf('/', slash + 1)) {
+            String folder = objectName.substring(0, slash + 1);
+            if (seenFolders.add(folder)) {
+                objects.add(new IndexedObject(folder, true, 0, null));
+            }
+        }
+
+        if (!object.folder() || seenFolders.add(objectName)) {
+            objects.add(object);
+        }
+    }
+
+    private static StorageObject mapStorageObject(ResultSet rs, int rowNum) throws SQLException {
+        return StorageObject.builder()
+                .objectName(rs.getString("object_name"))
+                .ownerFolder(rs.getString("owner_folder"))
+                .parentPath(rs.getString("parent_path"))
+                .name(rs.getString("name"))
+                .folder(rs.getBoolean("is_folder"))
+                .size(rs.getLong("size"))
+                .etag(rs.getString("etag"))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .updatedAt(rs.getTimestamp("updated_at").toInstant())
+                .verifiedAt(rs.getTimestamp("verified_at").toInstant())
+                .build();
+    }
+
+    private static String getOwnerFolder(String objectName) {
+        return objectName.substring(0, objectName.indexOf('/') + 1);
+    }
+
+    private static boolean isFolderKey(String objectName) {
+        return objectName.endsWith("/");
+    }
+
+    private static String normalizeEtag(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
+    /**
+     * Объект для записи в индекс
+     *
+     * @param etag ETag объекта (null --> неизвестен)
+     */
+    private record IndexedObject(String objectName, boolean folder, long size, String etag) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.mapper.JsonConverter;
+import com.lostway.cloudfilestorage.mapper.KafkaMapper;
+import com.lostway.cloudfilestorage.repository.OutboxKafkaRepository;
+import com.lostway.cloudfilestorage.repository.UpdateFileRepository;
+import com.lostway.cloudfilestorage.repository.entity.OutboxKafka;
+import com.lostway.cloudfilestorage.repository.entity.UpdateFile;
+import com.lostway.jwtsecuritylib.kafka.FileUploadedEvent;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import com.lostway.jwtsecuritylib.kafka.enums.FileStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сохранение информации о загруженных файлах и событий для отправки в kafka (outbox)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadMetadataService {
+
+    private static final JsonConverter JSON_CONVERTER = new JsonConverter();
+
+    private final UpdateFileRepository updateFileRepository;
+    private final KafkaMapper kafkaMapper;
+    private final OutboxKafkaRepository outboxKafkaRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохранение информации о загруженном файле и события для отправки в kafka
+     *
+     * @param fileName имя файла
+     * @param fileType формат файла
+     * @param fileSize размер файла
+     * @param email    почта загрузившего пользователя
+     * @return сохраненная информация о файле
+     */
+    @Transactional
+    public UpdateFile saveUploadMetadata(String fileName, ContentType fileType, long fileSize, String email) {
+        UpdateFile updateFile = UpdateFile.builder()
+                .fileId(UUID.randomUUID())
+                .fileName(fileName)
+                .contentType(fileType)
+                .fileSize(fileSize)
+                .uploaderEmail(email)
+                .status(FileStatus.UPLOADED)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+
+        log.info("UpdateFile: {}", updateFile);
+        updateFileRepository.save(updateFile);
+
+        FileUploadedEvent fileUpdateEvent = kafkaMapper.fromEntityToFileUpdateEvent(updateFile);
+        log.info("FileUploadedEvent: {}", fileUpdateEvent);
+        OutboxKafka outboxKafka = kafkaMapper.fromDtoToEntity(fileUpdateEvent);
+
+        var outbox = outboxKafkaRepository.save(outboxKafka);
+        log.info("Outbox: {}", outbox);
+
+        return updateFile;
+    }
+
+    /**
+     * Сохранение информации о нескольких загруженных файлах одной пакетной вставкой (JDBC batch)
+     * вместо отдельных save для каждого файла и каждого события
+     *
+     * @param files загруженные файлы
+     * @param email почта загрузившего пользователя
+     */
+    @Transactional
+    public void saveUploadMetadataBatch(List<StoredFile> files, String email) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<UpdateFile> updateFiles = files.stream()
+                .map(file -> UpdateFile.builder()
+                        .fileId(UUID.randomUUID())
+                        .fileName(file.fileName())
+                        .contentType(file.fileType())
+                        .fileSize(file.fileSize())
+                        .uploaderEmail(email)
+                        .status(FileStatus.UPLOADED)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build())
+                .toList();
+
+        // Enum-ы пишутся порядковым номером, как их сохраняет JPA для UpdateFile (без @Enumerated)
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO uploaded_files
+                            (file_id, file_name, content_type, file_size, uploader_email, status, created_at, updated_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                updateFiles,
+                updateFiles.size(),
+                (ps, file) -> {
+                    ps.setObject(1, file.getFileId());
+                    ps.setString(2, file.getFileName());
+                    ps.setString(3, String.valueOf(file.getContentType().ordinal()));
+                    ps.setLong(4, file.getFileSize());
+                    ps.setString(5, file.getUploaderEmail());
+                    ps.setString(6, String.valueOf(file.getStatus().ordinal()));
+                    ps.setObject(7, OffsetDateTime.ofInstant(file.getCreatedAt(), ZoneOffset.UTC));
+                    ps.setObject(8, OffsetDateTime.ofInstant(file.getUpdatedAt(), ZoneOffset.UTC));
+                });
+
+        List<OutboxKafka> outboxEvents = kafkaMapper.fromEntitiesToFileUpdateEvents(updateFiles).stream()
+                .map(kafkaMapper::fromDtoToEntity)
+                .toList();
+
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO outbox_kafka (file_id, payload, created_at, processed)
+                        VALUES (?, ?::jsonb, ?, false)
+                        """,
+                outboxEvents,
+                outboxEvents.size(),
+                (ps, outbox) -> {
+                    ps.setObject(1, outbox.getFileId());
+                    ps.setString(2, JSON_CONVERTER.convertToDatabaseColumn(outbox.getPayload()));
+                    ps.setObject(3, OffsetDateTime.ofInstant(outbox.getCreatedAt(), ZoneOffset.UTC));
+                });
+
+        log.info("Пакетно сохранена информация о файлах: {}", updateFiles.size());
+    }
+
+    /**
+     * Загруженный в хранилище файл, информацию о котором нужно сохранить
+     *
+     * @param fileName имя файла
+     * @param fileType формат файла
+     * @param fileSize размер файла
+     */
+    public record StoredFile(String fileName, ContentType fileType, long fileSize) {
+    }
+}
@@ -0,0 +1,334 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.controller.dto.UploadFileResponseDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadSessionDTO;
+import com.lostway.cloudfilestorage.controller.dto.UploadSessionPartDTO;
+import com.lostway.cloudfilestorage.exception.dto.*;
+import com.lostway.cloudfilestorage.repository.UploadSessionPartRepository;
+import com.lostway.cloudfilestorage.repository.UploadSessionRepository;
+import com.lostway.cloudfilestorage.repository.entity.UploadSession;
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionPart;
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionStatus;
+import com.lostway.cloudfilestorage.security.PrincipalResolver;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import static com.lostway.cloudfilestorage.utils.FileSignatureUtils.SNIFF_SIZE;
+import static com.lostway.cloudfilestorage.utils.FileSignatureUtils.checkSignature;
+import static com.lostway.cloudfilestorage.utils.MinioStorageUtils.*;
+
+/**
+ * Возобновляемая загрузка файла сессиями. Клиент создает сессию, загружает пронумерованные части
+ * в любом порядке (в том числе параллельно) и подтверждает загрузку.
+ * Каждая часть соответствует части multipart загрузки в MinIO.
+ * Часть читается в буфер на время отправки в хранилище; суммарный размер буферов на узле ограничен (node-buffer).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+    private static final int MAX_PART_NUMBER = 10_000;
+
+    private static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+    private final FileStorageService fileStorageService;
+    private final MultipartStreamUploader multipartStreamUploader;
+    private final UploadMetadataService uploadMetadataService;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionPartRepository uploadSessionPartRepository;
+    private final StorageObjectIndex storageObjectIndex;
+    private final StorageMetadataCache storageMetadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final PrincipalResolver principalResolver;
+
+    @Value("${minio.upload.session.max-part-size:64MB}")
+    private DataSize maxPartSize;
+
+    @Value("${minio.upload.session.node-buffer:512MB}")
+    private DataSize nodeBuffer;
+
+    @Value("${minio.upload.max-file-size:1GB}")
+    private DataSize maxFileSize;
+
+    private Semaphore nodeBufferBytes;
+
+    @PostConstruct
+    void init() {
+        nodeBufferBytes = new Semaphore((int) Math.min(Integer.MAX_VALUE, nodeBuffer.toBytes()));
+    }
+
+    /**
+     * Создание сессии загрузки. Наличие файла проверяется сразу, чтобы клиент не загружал части впустую,
+     * но окончательно дубликат отсекается условным завершением загрузки при подтверждении
+     *
+     * @param fileName имя файла, дубликат определяется по имени
+     * @return Информация о созданной сессии
+     * @throws ResourceInStorageAlreadyExists > файл уже существует в этой папке
+     */
+    public UploadSessionDTO createSession(String fileName, HttpServletRequest request) {
+        String email = principalResolver.resolve(request).email();
+
+        fileName = getNameFromPath(fileName);
+        String rootFolder = getRootFolder(request, principalResolver);
+        String objectName = rootFolder + fileName;
+
+        ContentType fileType = fileStorageService.validateUploadPath(objectName, fileName);
+        if (fileStorageService.isFileExists(objectName)) {
+            throw new ResourceInStorageAlreadyExists("Ресурс по такому пути уже существует!");
+        }
+        String uploadId = multipartStreamUploader.createMultipartUpload(objectName, getMimeType(fileType));
+
+        UploadSession session = UploadSession.builder()
+                .sessionId(UUID.randomUUID())
+                .ownerFolder(rootFolder)
+                .objectName(objectName)
+                .fileName(fileName)
+                .contentType(fileType)
+                .uploaderEmail(email)
+                .uploadId(uploadId)
+                .status(UploadSessionStatus.ACTIVE)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+
+        uploadSessionRepository.save(session);
+        log.info("Создана сессия загрузки {} для '{}'", session.getSessionId(), objectName);
+
+        return toDto(session, List.of());
+    }
+
+    /**
+     * Получение состояния сессии: какие части уже получены (для возобновления загрузки)
+     */
+    public UploadSessionDTO getSession(UUID sessionId, HttpServletRequest request) {
+        UploadSession session = getUserSession(sessionId, request);
+        return toDto(session, uploadSessionPartRepository.findAllBySessionIdOrderByPartNumberAsc(sessionId));
+    }
+
+    /**
+     * Загрузка одной части. Повторная загрузка части с тем же номером перезаписывает ее.
+     * Первая часть проверяется по сигнатуре формата до отправки в хранилище.
+     * Буфер выделяется один раз по Content-Length (без него -- по максимальному размеру части)
+     * и резервируется в общем лимите узла. Часть отклоняется, если вместе с уже полученными частями
+     * размер файла превысит допустимый.
+     *
+     * @param partNumber номер части от 1 до 10000
+     * @return Информация о загруженной части
+     * @throws FileUploadSizeException            > часть или файл превышает допустимый размер
+     * @throws StreamingCapacityExceededException > на узле сейчас слишком много загружаемых частей
+     */
+    public UploadSessionPartDTO uploadPart(UUID sessionId, int partNumber, HttpServletRequest request) {
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("Номер части должен быть от 1 до " + MAX_PART_NUMBER);
+        }
+
+        UploadSession session = getActiveUserSession(sessionId, request);
+        long declaredLength = request.getContentLengthLong();
+        if (declaredLength > maxPartSize.toBytes()) {
+            throw new FileUploadSizeException("Размер части превышает допустимый: " + maxPartSize);
+        }
+        if (declaredLength >= 0) {
+            checkFileSize(sessionId, partNumber, declaredLength);
+        }
+
+        int bufferSize = declaredLength >= 0 ? (int) declaredLength : (int) maxPartSize.toBytes();
+        if (!nodeBufferBytes.tryAcquire(bufferSize)) {
+            throw new StreamingCapacityExceededException("Слишком много одновременно загружаемых частей, повторите позже");
+        }
+
+        try {
+            byte[] chunk = new byte[bufferSize];
+            int length = readChunk(request, chunk);
+            if (declaredLength < 0) {
+                checkFileSize(sessionId, partNumber, length);
+            }
+            if (partNumber == 1) {
+                checkSignature(Arrays.copyOf(chunk, Math.min(length, SNIFF_SIZE)), session.getContentType());
+            }
+
+            Part part = multipartStreamUploader.uploadPart(session.getObjectName(), session.getUploadId(), partNumber, chunk, length);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                uploadSessionPartRepository.upsertPart(sessionId, partNumber, part.etag(), length);
+                uploadSessionRepository.touch(sessionId, Instant.now());
+            });
+            log.debug("Сессия {}: получена часть {} ({} байт)", sessionId, partNumber, length);
+
+            return new UploadSessionPartDTO(partNumber, length, part.etag());
+        } finally {
+            nodeBufferBytes.release(bufferSize);
+        }
+    }
+
+    /**
+     * Подтверждение загрузки: хранилище собирает файл из частей, после чего сохраняется информация о файле
+     *
+     * @return Информация о созданном файле
+     */
+    public UploadFileResponseDTO commit(UUID sessionId, HttpServletRequest request) {
+        UploadSession session = getActiveUserSession(sessionId, request);
+        List<UploadSessionPart> parts = uploadSessionPartRepository.findAllBySessionIdOrderByPartNumberAsc(sessionId);
+        long fileSize = validateParts(parts);
+
+        Part[] minioParts = parts.stream()
+                .map(part -> new Part(part.getPartNumber(), part.getEtag()))
+                .toArray(Part[]::new);
+        try {
+            multipartStreamUploader.completeMultipartUpload(session.getObjectName(), session.getUploadId(), minioParts);
+        } catch (ResourceInStorageAlreadyExists e) {
+            log.info("Сессия {}: файл '{}' появился во время загрузки, сессия отменена", sessionId, session.getObjectName());
+            multipartStreamUploader.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+            markClosed(session, UploadSessionStatus.ABORTED);
+            throw e;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                uploadMetadataService.saveUploadMetadata(session.getFileName(), session.getContentType(), fileSize, session.getUploaderEmail());
+                session.setStatus(UploadSessionStatus.COMMITTED);
+                session.setUpdatedAt(Instant.now());
+                uploadSessionRepository.save(session);
+            });
+        } catch (Exception e) {
+            log.error("Не удалось сохранить информацию о файле сессии {}", sessionId, e);
+            fileStorageService.deleteFile(session.getObjectName());
+            markClosed(session, UploadSessionStatus.ABORTED);
+            throw new FileStorageException("Не удалось загрузить файл", e);
+        }
+
+        storageObjectIndex.recordFile(session.getObjectName(), fileSize, null);
+        storageMetadataCache.invalidate(session.getObjectName());
+        log.info("Сессия загрузки {} завершена: '{}', {} байт", sessionId, session.getObjectName(), fileSize);
+        return new UploadFileResponseDTO("Ваш документ принят! Отчет будет направлен на почту", session.getUploaderEmail());
+    }
+
+    /**
+     * Отмена сессии загрузки, загруженные части удаляются из хранилища
+     */
+    public void abort(UUID sessionId, HttpServletRequest request) {
+        UploadSession session = getActiveUserSession(sessionId, request);
+        multipartStreamUploader.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+        markClosed(session, UploadSessionStatus.ABORTED);
+        log.info("Сессия загрузки {} отменена", sessionId);
+    }
+
+    /**
+     * Закрытие сессии, которая больше не будет продолжена (отмена пользователем или по сроку годности)
+     */
+    public void markClosed(UploadSession session, UploadSessionStatus status) {
+        session.setStatus(status);
+        session.setUpdatedAt(Instant.now());
+        uploadSessionRepository.save(session);
+    }
+
+    /**
+     * Проверка, что части идут подряд с первой и все, кроме последней, не меньше минимального размера
+     *
+     * @return итоговый размер файла
+     */
+    private long validateParts(List<UploadSessionPart> parts) {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("Не загружено ни одной части");
+        }
+
+        long total = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            UploadSessionPart part = parts.get(i);
+            if (part.getPartNumber() != i + 1) {
+                throw new IllegalArgumentException("Отсутствует часть " + (i + 1));
+            }
+            if (i < parts.size() - 1 && part.getPartSize() < MIN_PART_SIZE) {
+                throw new IllegalArgumentException("Часть " + part.getPartNumber() + " меньше минимального размера 5MB");
+            }
+            total += part.getPartSize();
+        }
+
+        if (total > maxFileSize.toBytes()) {
+            throw new FileUploadSizeException("Размер файла превышает допустимый: " + maxFileSize);
+        }
+        return total;
+    }
+
+    /**
+     * Проверка, что файл с этой частью не превысит допустимый размер, до отправки части в хранилище
+     */
+    private void checkFileSize(UUID sessionId, int partNumber, long partSize) {
+        if (uploadSessionPartRepository.sumPartSizesExcept(sessionId, partNumber) + partSize > maxFileSize.toBytes()) {
+            throw new FileUploadSizeException("Размер файла превышает допустимый: " + maxFileSize);
+        }
+    }
+
+    /**
+     * Чтение тела запроса в заранее выделенный буфер
+     *
+     * @return количество прочитанных байт
+     */
+    private int readChunk(HttpServletRequest request, byte[] buffer) {
+        try (InputStream inputStream = request.getInputStream()) {
+            int length = inputStream.readNBytes(buffer, 0, buffer.length);
+            if (inputStream.read() != -1) {
+                throw new FileUploadSizeException("Размер части превышает допустимый: " + maxPartSize);
+            }
+            if (length == 0) {
+                throw new IllegalArgumentException("Часть не может быть пустой");
+            }
+            return length;
+        } catch (IOException e) {
+            throw new FileStorageException("Ошибка при чтении тела запроса", e);
+        }
+    }
+
+    private UploadSession getActiveUserSession(UUID sessionId, HttpServletRequest request) {
+        UploadSession session = getUserSession(sessionId, request);
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            throw new UploadSessionClosedException("Сессия загрузки уже закрыта: " + session.getStatus());
+        }
+        return session;
+    }
+
+    /**
+     * Сессию может использовать только создавший ее пользователь (контролируется rootFolder)
+     */
+    private UploadSession getUserSession(UUID sessionId, HttpServletRequest request) {
+        String rootFolder = getRootFolder(request, principalResolver);
+        return uploadSessionRepository.findById(sessionId)
+                .filter(session -> !isDirectUpload(session))
+                .filter(session -> session.getOwnerFolder().equals(rootFolder))
+                .orElseThrow(() -> new FileStorageNotFoundException("Сессия загрузки не найдена"));
+    }
+
+    /**
+     * Сессия прямой загрузки в хранилище (см. DirectUploadService) не имеет multipart загрузки
+     */
+    public static boolean isDirectUpload(UploadSession session) {
+        return session.getUploadId() == null;
+    }
+
+    private static UploadSessionDTO toDto(UploadSession session, List<UploadSessionPart> parts) {
+        return new UploadSessionDTO(
+                session.getSessionId(),
+                session.getFileName(),
+                session.getStatus(),
+                parts.stream()
+                        .map(part -> new UploadSessionPartDTO(part.getPartNumber(), part.getPartSize(), part.getEtag()))
+                        .toList()
+        );
+    }
+}
@@ -0,0 +1,74 @@
+package com.lostway.cloudfilestorage.minio;
+
+import com.lostway.cloudfilestorage.repository.ProvisionedUserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр пользователей, для которых уже создана корневая папка. Проверка идет по множеству в памяти,
+ * поэтому после первого запроса пользователя обращений к хранилищу и БД больше нет.
+ * Множество восстанавливается из таблицы provisioned_users по мере запросов (одна проверка в БД на пользователя
+ * после перезапуска), а одновременные первые запросы одного пользователя ждут одно общее создание папки.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserProvisioningRegistry {
+
+    private final ProvisionedUserRepository provisionedUserRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<String> provisioned = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+
+    /**
+     * Создание корневой папки пользователя, если она еще не создана
+     *
+     * @param rootFolder корневая папка пользователя
+     * @param provision  создание папки в хранилище (выполняется один раз на пользователя)
+     */
+    public void ensureProvisioned(String rootFolder, Runnable provision) {
+        if (provisioned.contains(rootFolder)) {
+            return;
+        }
+
+        CompletableFuture<Void> provisioning = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inProgress.putIfAbsent(rootFolder, provisioning);
+        if (existing != null) {
+            awaitProvisioning(existing);
+            return;
+        }
+
+        try {
+            if (!provisionedUserRepository.existsById(rootFolder)) {
+                provision.run();
+                transactionTemplate.executeWithoutResult(status -> provisionedUserRepository.insertIfAbsent(rootFolder));
+                log.info("Создана корневая папка пользователя: {}", rootFolder);
+            }
+            provisioned.add(rootFolder);
+            provisioning.complete(null);
+        } catch (RuntimeException e) {
+            provisioning.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(rootFolder, provisioning);
+        }
+    }
+
+    private static void awaitProvisioning(CompletableFuture<Void> provisioning) {
+        try {
+            provisioning.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.ContentBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    boolean existsByObjectKey(String objectKey);
+
+    /**
+     * Одинаковое содержимое может загружаться параллельно, побеждает первая вставка
+     *
+     * @return 1 --> blob создан<p>
+     * 0 --> blob с таким хешем уже существует
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO content_blobs (sha256, object_key, size, ref_count, created_at)
+            VALUES (:sha256, :objectKey, :size, 0, now())
+            ON CONFLICT (sha256) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("sha256") String sha256,
+                       @Param("objectKey") String objectKey,
+                       @Param("size") long size);
+
+    @Modifying
+    @Query("""
+            UPDATE ContentBlob b
+            SET b.refCount = b.refCount + :delta
+            WHERE b.sha256 = :sha256
+            """)
+    int changeRefCount(@Param("sha256") String sha256, @Param("delta") int delta);
+
+    @Query("""
+            SELECT b FROM ContentBlob b
+            WHERE b.refCount <= 0
+            ORDER BY b.createdAt ASC
+            """)
+    List<ContentBlob> findOrphans(Pageable pageable);
+
+    @Modifying
+    @Query("""
+            DELETE FROM ContentBlob b
+            WHERE b.sha256 = :sha256 AND b.refCount <= 0
+            """)
+    int deleteIfOrphan(@Param("sha256") String sha256);
+}
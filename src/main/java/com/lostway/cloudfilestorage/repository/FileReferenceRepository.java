@@ -0,0 +1,93 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.FileReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Пути пользователей, которые ссылаются на blob-ы. Шаблоны LIKE передаются уже экранированными
+ */
+@Repository
+public interface FileReferenceRepository extends JpaRepository<FileReference, String> {
+
+    /**
+     * Порядок COLLATE "C" совпадает с порядком ключей в хранилище (побайтово), поэтому страницы сливаются с листингом MinIO
+     */
+    @Query(value = """
+            SELECT * FROM file_references
+            WHERE parent_path = :parentPath AND object_name COLLATE "C" > :afterObjectName
+            ORDER BY object_name COLLATE "C"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileReference> findChildrenAfter(@Param("parentPath") String parentPath,
+                                          @Param("afterObjectName") String afterObjectName,
+                                          @Param("limit") int limit);
+
+    @Query("""
+            SELECT r FROM FileReference r
+            WHERE r.objectName LIKE :prefixPattern ESCAPE '\\'
+            """)
+    List<FileReference> findAllUnder(@Param("prefixPattern") String prefixPattern);
+
+    @Query("""
+            SELECT r FROM FileReference r
+            WHERE r.objectName LIKE :prefixPattern ESCAPE '\\' AND lower(r.fileName) = lower(:fileName)
+            """)
+    List<FileReference> findAllUnderByName(@Param("prefixPattern") String prefixPattern, @Param("fileName") String fileName);
+
+    @Query("""
+            SELECT b.objectKey FROM FileReference r
+            JOIN ContentBlob b ON b.sha256 = r.sha256
+            WHERE r.objectName = :objectName
+            """)
+    Optional<String> findBlobKey(@Param("objectName") String objectName);
+
+    /**
+     * Вставка без merge: если путь уже занят, будет ошибка уникальности, а не перезапись чужой ссылки
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_references (object_name, parent_path, file_name, sha256, size, created_at)
+            VALUES (:objectName, :parentPath, :fileName, :sha256, :size, now())
+            """, nativeQuery = true)
+    int insert(@Param("objectName") String objectName,
+               @Param("parentPath") String parentPath,
+               @Param("fileName") String fileName,
+               @Param("sha256") String sha256,
+               @Param("size") long size);
+
+    @Modifying
+    @Query(value = """
+            UPDATE file_references
+            SET object_name = :newObjectName, parent_path = :parentPath, file_name = :fileName
+            WHERE object_name = :oldObjectName
+            """, nativeQuery = true)
+    int move(@Param("oldObjectName") String oldObjectName,
+             @Param("newObjectName") String newObjectName,
+             @Param("parentPath") String parentPath,
+             @Param("fileName") String fileName);
+
+    @Modifying
+    @Query("""
+            DELETE FROM FileReference r
+            WHERE r.objectName LIKE :prefixPattern ESCAPE '\\'
+            """)
+    int deleteAllUnder(@Param("prefixPattern") String prefixPattern);
+
+    @Modifying
+    @Query(value = """
+            UPDATE file_references
+            SET object_name = :newPrefix || substring(object_name FROM char_length(:oldPrefix) + 1),
+                parent_path = :newPrefix || substring(parent_path FROM char_length(:oldPrefix) + 1)
+            WHERE object_name LIKE :prefixPattern ESCAPE '\\'
+            """, nativeQuery = true)
+    int moveAllUnder(@Param("oldPrefix") String oldPrefix,
+                     @Param("newPrefix") String newPrefix,
+                     @Param("prefixPattern") String prefixPattern);
+}
@@ -0,0 +1,23 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.ProvisionedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Пользователи, для которых уже создана корневая папка в хранилище
+ */
+@Repository
+public interface ProvisionedUserRepository extends JpaRepository<ProvisionedUser, String> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO provisioned_users (root_folder, provisioned_at)
+            VALUES (:rootFolder, now())
+            ON CONFLICT (root_folder) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("rootFolder") String rootFolder);
+}
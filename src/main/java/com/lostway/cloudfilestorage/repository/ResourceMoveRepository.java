@@ -0,0 +1,9 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.ResourceMove;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ResourceMoveRepository extends JpaRepository<ResourceMove, String> {
+}
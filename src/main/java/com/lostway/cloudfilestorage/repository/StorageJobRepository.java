@@ -0,0 +1,105 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.StorageJob;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface StorageJobRepository extends JpaRepository<StorageJob, UUID> {
+
+    @Query("""
+            SELECT j.jobId FROM StorageJob j
+            WHERE j.status = :status
+            ORDER BY j.createdAt ASC
+            """)
+    List<UUID> findIdsByStatus(@Param("status") StorageJobStatus status, Pageable pageable);
+
+    @Query("""
+            SELECT j FROM StorageJob j
+            WHERE j.status IN :statuses AND j.finishedAt < :before
+            ORDER BY j.finishedAt ASC
+            """)
+    List<StorageJob> findFinishedBefore(@Param("statuses") Collection<StorageJobStatus> statuses,
+                                        @Param("before") Instant before,
+                                        Pageable pageable);
+
+    @Query("""
+            SELECT j.cancelRequested FROM StorageJob j
+            WHERE j.jobId = :jobId
+            """)
+    boolean isCancelRequested(@Param("jobId") UUID jobId);
+
+    /**
+     * Смена статуса, только если задача сейчас в ожидаемом статусе. Узел, получивший 1, владеет переходом
+     */
+    @Modifying
+    @Query("""
+            UPDATE StorageJob j
+            SET j.status = :to, j.startedAt = :now, j.updatedAt = :now
+            WHERE j.jobId = :jobId AND j.status = :from
+            """)
+    int claim(@Param("jobId") UUID jobId,
+              @Param("from") StorageJobStatus from,
+              @Param("to") StorageJobStatus to,
+              @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE StorageJob j
+            SET j.objectsDone = :objectsDone, j.bytesDone = :bytesDone,
+                j.objectsTotal = :objectsTotal, j.bytesTotal = :bytesTotal, j.updatedAt = :now
+            WHERE j.jobId = :jobId AND j.status = :status
+            """)
+    int updateProgress(@Param("jobId") UUID jobId,
+                       @Param("status") StorageJobStatus status,
+                       @Param("objectsDone") long objectsDone,
+                       @Param("bytesDone") long bytesDone,
+                       @Param("objectsTotal") Long objectsTotal,
+                       @Param("bytesTotal") Long bytesTotal,
+                       @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE StorageJob j
+            SET j.status = :to, j.error = :error, j.resultObject = :resultObject, j.finishedAt = :now, j.updatedAt = :now
+            WHERE j.jobId = :jobId AND j.status = :from
+            """)
+    int finish(@Param("jobId") UUID jobId,
+               @Param("from") StorageJobStatus from,
+               @Param("to") StorageJobStatus to,
+               @Param("error") String error,
+               @Param("resultObject") String resultObject,
+               @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE StorageJob j
+            SET j.cancelRequested = true, j.updatedAt = :now
+            WHERE j.jobId = :jobId AND j.status = :status
+            """)
+    int requestCancel(@Param("jobId") UUID jobId, @Param("status") StorageJobStatus status, @Param("now") Instant now);
+
+    /**
+     * Возврат в очередь задач, исполнитель которых перестал обновлять ход (узел остановлен или упал)
+     */
+    @Modifying
+    @Query("""
+            UPDATE StorageJob j
+            SET j.status = :to, j.updatedAt = :now
+            WHERE j.status = :from AND j.updatedAt < :before
+            """)
+    int requeueStale(@Param("from") StorageJobStatus from,
+                     @Param("to") StorageJobStatus to,
+                     @Param("before") Instant before,
+                     @Param("now") Instant now);
+}
@@ -0,0 +1,98 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.StorageObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Индекс объектов хранилища (файлы и папки пользователей). Шаблоны LIKE передаются уже экранированными
+ */
+@Repository
+public interface StorageObjectRepository extends JpaRepository<StorageObject, String> {
+
+    /**
+     * Порядок COLLATE "C" совпадает с порядком ключей в хранилище (побайтово), как и при листинге MinIO
+     */
+    @Query(value = """
+            SELECT * FROM storage_objects
+            WHERE parent_path = :parentPath AND object_name COLLATE "C" > :afterObjectName
+            ORDER BY object_name COLLATE "C"
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<StorageObject> findChildrenAfter(@Param("parentPath") String parentPath,
+                                          @Param("afterObjectName") String afterObjectName,
+                                          @Param("limit") int limit);
+
+    @Modifying
+    @Query("""
+            DELETE FROM StorageObject o
+            WHERE o.objectName LIKE :prefixPattern ESCAPE '\\'
+            """)
+    int deleteAllUnder(@Param("prefixPattern") String prefixPattern);
+
+    @Modifying
+    @Query(value = """
+            UPDATE storage_objects
+            SET object_name = :newObjectName, parent_path = :parentPath, name = :name,
+                updated_at  = now(),
+                verified_at = now()
+            WHERE object_name = :oldObjectName
+            """, nativeQuery = true)
+    int move(@Param("oldObjectName") String oldObjectName,
+             @Param("newObjectName") String newObjectName,
+             @Param("parentPath") String parentPath,
+             @Param("name") String name);
+
+    /**
+     * Сама папка тоже попадает под префикс, поэтому ее имя и родитель пересчитываются отдельно в move
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE storage_objects
+            SET object_name = :newPrefix || substring(object_name FROM char_length(:oldPrefix) + 1),
+                parent_path = :newPrefix || substring(parent_path FROM char_length(:oldPrefix) + 1),
+                updated_at  = now(),
+                verified_at = now()
+            WHERE object_name LIKE :prefixPattern ESCAPE '\\' AND object_name <> :oldPrefix
+            """, nativeQuery = true)
+    int moveAllUnder(@Param("oldPrefix") String oldPrefix,
+                     @Param("newPrefix") String newPrefix,
+                     @Param("prefixPattern") String prefixPattern);
+
+    /**
+     * Удаление записей, которых не было в хранилище при последней сверке и которые не менялись во время нее
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM storage_objects
+            WHERE verified_at < :runStartedAt AND updated_at < :runStartedAt
+            """, nativeQuery = true)
+    int deleteNotVerifiedSince(@Param("runStartedAt") Instant runStartedAt);
+
+    /**
+     * Удаление записи, которую после удаления файла могла вернуть сверка. Запись, записанная сервисом
+     * после начала сверки (файл создан заново), имеет более поздний verified_at и не удаляется
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM storage_objects
+            WHERE object_name = :objectName AND verified_at <= :runStartedAt
+            """, nativeQuery = true)
+    int deleteReconciled(@Param("objectName") String objectName, @Param("runStartedAt") Instant runStartedAt);
+
+    /**
+     * То же для удаленной или перемещенной папки: все записи под префиксом, которые обновляла только сверка
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM storage_objects
+            WHERE object_name LIKE :prefixPattern ESCAPE '\\' AND verified_at <= :runStartedAt
+            """, nativeQuery = true)
+    int deleteReconciledUnder(@Param("prefixPattern") String prefixPattern, @Param("runStartedAt") Instant runStartedAt);
+}
@@ -0,0 +1,41 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, UploadSessionPart.PartId> {
+
+    List<UploadSessionPart> findAllBySessionIdOrderByPartNumberAsc(UUID sessionId);
+
+    /**
+     * Части могут приходить параллельно и повторно (после обрыва связи), поэтому вставка идемпотентна
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO upload_session_parts (session_id, part_number, etag, part_size, created_at)
+            VALUES (:sessionId, :partNumber, :etag, :partSize, now())
+            ON CONFLICT (session_id, part_number)
+            DO UPDATE SET etag = EXCLUDED.etag, part_size = EXCLUDED.part_size, created_at = now()
+            """, nativeQuery = true)
+    int upsertPart(@Param("sessionId") UUID sessionId,
+                   @Param("partNumber") int partNumber,
+                   @Param("etag") String etag,
+                   @Param("partSize") long partSize);
+
+    /**
+     * Суммарный размер уже полученных частей, кроме части с указанным номером (она будет перезаписана)
+     */
+    @Query(value = """
+            SELECT COALESCE(SUM(part_size), 0) FROM upload_session_parts
+            WHERE session_id = :sessionId AND part_number <> :partNumber
+            """, nativeQuery = true)
+    long sumPartSizesExcept(@Param("sessionId") UUID sessionId, @Param("partNumber") int partNumber);
+}
@@ -0,0 +1,35 @@
+package com.lostway.cloudfilestorage.repository;
+
+import com.lostway.cloudfilestorage.repository.entity.UploadSession;
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    @Query("""
+            SELECT s FROM UploadSession s
+            WHERE s.status = :status AND s.updatedAt < :before
+            ORDER BY s.updatedAt ASC
+            """)
+    List<UploadSession> findStaleSessions(@Param("status") UploadSessionStatus status,
+                                          @Param("before") Instant before,
+                                          Pageable pageable);
+
+    @Modifying
+    @Query("""
+            UPDATE UploadSession s
+            SET s.updatedAt = :updatedAt
+            WHERE s.sessionId = :sessionId
+            """)
+    int touch(@Param("sessionId") UUID sessionId, @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,37 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "content_blobs")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentBlob {
+
+    @Id
+    @Column(name = "sha256")
+    private String sha256;
+
+    @Column(name = "object_key")
+    private String objectKey;
+
+    @Column(name = "size")
+    private long size;
+
+    @Column(name = "ref_count")
+    private int refCount;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
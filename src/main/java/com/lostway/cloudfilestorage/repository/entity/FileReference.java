@@ -0,0 +1,40 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "file_references")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileReference {
+
+    @Id
+    @Column(name = "object_name")
+    private String objectName;
+
+    @Column(name = "parent_path")
+    private String parentPath;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "sha256")
+    private String sha256;
+
+    @Column(name = "size")
+    private long size;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+}
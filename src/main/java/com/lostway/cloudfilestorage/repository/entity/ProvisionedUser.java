@@ -0,0 +1,28 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "provisioned_users")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisionedUser {
+
+    @Id
+    @Column(name = "root_folder")
+    private String rootFolder;
+
+    @Column(name = "provisioned_at")
+    private Instant provisionedAt;
+}
@@ -0,0 +1,42 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Незавершенное перемещение папки. Запись удаляется, когда перемещение закончено,
+ * а прерванное перемещение продолжается повторным запросом с теми же путями
+ */
+@Data
+@Entity
+@Table(name = "resource_moves")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceMove {
+
+    @Id
+    @Column(name = "source_path")
+    private String sourcePath;
+
+    @Column(name = "target_path")
+    private String targetPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ResourceMoveStatus status;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,9 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+/**
+ * Этап перемещения папки: COPYING - объекты копируются, старая папка не тронута;
+ * REMOVING - все объекты скопированы, старые объекты удаляются
+ */
+public enum ResourceMoveStatus {
+    COPYING, REMOVING
+}
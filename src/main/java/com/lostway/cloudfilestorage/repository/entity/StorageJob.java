@@ -0,0 +1,77 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Фоновая операция над папкой (удаление, перемещение, архивация). Счетчики хода обновляются исполнителем
+ * периодически, updated_at служит признаком того, что исполнитель жив
+ */
+@Data
+@Entity
+@Table(name = "storage_jobs")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageJob {
+
+    @Id
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    @Column(name = "owner_folder")
+    private String ownerFolder;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type")
+    private StorageJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private StorageJobStatus status;
+
+    @Column(name = "source_path")
+    private String sourcePath;
+
+    @Column(name = "target_path")
+    private String targetPath;
+
+    @Column(name = "objects_done")
+    private long objectsDone;
+
+    @Column(name = "objects_total")
+    private Long objectsTotal;
+
+    @Column(name = "bytes_done")
+    private long bytesDone;
+
+    @Column(name = "bytes_total")
+    private Long bytesTotal;
+
+    @Column(name = "result_object")
+    private String resultObject;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "cancel_requested")
+    private boolean cancelRequested;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
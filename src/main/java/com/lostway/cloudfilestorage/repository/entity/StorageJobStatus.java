@@ -0,0 +1,16 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+public enum StorageJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED;
+
+    /**
+     * Задача завершена и больше не изменится
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,10 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+/**
+ * Вид фоновой операции: DELETE - удаление, MOVE - перемещение, ARCHIVE - сборка ZIP архива папки в хранилище
+ */
+public enum StorageJobType {
+    DELETE,
+    MOVE,
+    ARCHIVE
+}
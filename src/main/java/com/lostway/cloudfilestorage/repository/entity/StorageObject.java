@@ -0,0 +1,52 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "storage_objects")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageObject {
+
+    @Id
+    @Column(name = "object_name")
+    private String objectName;
+
+    @Column(name = "owner_folder")
+    private String ownerFolder;
+
+    @Column(name = "parent_path")
+    private String parentPath;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "is_folder")
+    private boolean folder;
+
+    @Column(name = "size")
+    private long size;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "verified_at")
+    private Instant verifiedAt;
+}
@@ -0,0 +1,53 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "upload_sessions")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    @Column(name = "session_id")
+    private UUID sessionId;
+
+    @Column(name = "owner_folder")
+    private String ownerFolder;
+
+    @Column(name = "object_name")
+    private String objectName;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "content_type")
+    private ContentType contentType;
+
+    @Column(name = "uploader_email")
+    private String uploaderEmail;
+
+    @Column(name = "upload_id")
+    private String uploadId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private UploadSessionStatus status;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,46 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Entity
+@Table(name = "upload_session_parts")
+@IdClass(UploadSessionPart.PartId.class)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionPart {
+
+    @Id
+    @Column(name = "session_id")
+    private UUID sessionId;
+
+    @Id
+    @Column(name = "part_number")
+    private int partNumber;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "part_size")
+    private long partSize;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartId implements Serializable {
+        private UUID sessionId;
+        private int partNumber;
+    }
+}
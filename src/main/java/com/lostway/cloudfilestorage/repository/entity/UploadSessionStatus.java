@@ -0,0 +1,5 @@
+package com.lostway.cloudfilestorage.repository.entity;
+
+public enum UploadSessionStatus {
+    ACTIVE, COMMITTED, ABORTED, EXPIRED
+}
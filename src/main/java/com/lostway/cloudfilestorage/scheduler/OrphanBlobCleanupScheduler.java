@@ -0,0 +1,48 @@
+package com.lostway.cloudfilestorage.scheduler;
+
+import com.lostway.cloudfilestorage.minio.ContentAddressedStorage;
+import com.lostway.cloudfilestorage.repository.ContentBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrphanBlobCleanupScheduler {
+    private final ContentAddressedStorage contentAddressedStorage;
+    private final ContentBlobRepository contentBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${scheduler-batch-size}")
+    private int BATCH_SIZE;
+
+    /**
+     * Удаление blob-ов, на которые больше не ссылается ни один файл пользователя.
+     * Строка удаляется только если счетчик все еще нулевой, поэтому blob, на который успели сослаться, не пострадает
+     */
+    @Scheduled(cron = "${blob-cleanup-cron:0 30 * * * *}")
+    @Async
+    public void removeOrphanBlobs() {
+        if (!contentAddressedStorage.isEnabled()) {
+            return;
+        }
+
+        var orphans = contentBlobRepository.findOrphans(Pageable.ofSize(BATCH_SIZE));
+        int removed = 0;
+
+        for (var blob : orphans) {
+            Integer deleted = transactionTemplate.execute(status -> contentBlobRepository.deleteIfOrphan(blob.getSha256()));
+            if (deleted != null && deleted == 1) {
+                contentAddressedStorage.removeBlobObject(blob.getObjectKey());
+                removed++;
+            }
+        }
+        log.info("Удалены blob-ы без ссылок: {}", removed);
+    }
+}
@@ -0,0 +1,43 @@
+package com.lostway.cloudfilestorage.scheduler;
+
+import com.lostway.cloudfilestorage.minio.StorageObjectIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageIndexReconcileScheduler {
+    private final StorageObjectIndex storageObjectIndex;
+
+    @Value("${minio.index.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    /**
+     * Сверка индекса объектов с бакетом: исправляет записи, которые не удалось обновить вместе с хранилищем,
+     * и изменения, сделанные в бакете в обход сервиса
+     */
+    @Scheduled(cron = "${storage-index-reconcile-cron:0 15 4 * * *}")
+    @Async
+    public void reconcile() {
+        storageObjectIndex.reconcile();
+    }
+
+    /**
+     * Первичное заполнение индекса после включения (и догонка после простоя) при запуске сервиса
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void reconcileOnStartup() {
+        if (reconcileOnStartup && storageObjectIndex.isEnabled()) {
+            log.info("Сверка индекса хранилища при запуске");
+            storageObjectIndex.reconcile();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.lostway.cloudfilestorage.scheduler;
+
+import com.lostway.cloudfilestorage.minio.JobResultStorage;
+import com.lostway.cloudfilestorage.minio.StorageJobExecutor;
+import com.lostway.cloudfilestorage.repository.StorageJobRepository;
+import com.lostway.cloudfilestorage.repository.entity.StorageJobStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageJobScheduler {
+    private final StorageJobRepository storageJobRepository;
+    private final StorageJobExecutor storageJobExecutor;
+    private final JobResultStorage jobResultStorage;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${scheduler-batch-size}")
+    private int BATCH_SIZE;
+
+    @Value("${jobs.stale-after:1m}")
+    private Duration staleAfter;
+
+    @Value("${jobs.retention:24h}")
+    private Duration retention;
+
+    /**
+     * Сброс хода выполняемых задач в базу и получение запросов отмены
+     */
+    @Scheduled(fixedDelayString = "${jobs.progress-interval:1s}")
+    public void reportProgress() {
+        storageJobExecutor.reportProgress();
+    }
+
+    /**
+     * Запуск задач из очереди на свободных исполнителях. Перед этим в очередь возвращаются задачи,
+     * исполнитель которых давно не обновлял ход (узел упал): удаление и перемещение продолжаются с места остановки,
+     * архив собирается заново
+     */
+    @Scheduled(fixedDelayString = "${jobs.poll-interval:2s}")
+    public void dispatchQueuedJobs() {
+        Instant now = Instant.now();
+        Integer requeued = transactionTemplate.execute(status -> storageJobRepository.requeueStale(
+                StorageJobStatus.RUNNING, StorageJobStatus.QUEUED, now.minus(staleAfter), now));
+        if (requeued != null && requeued > 0) {
+            log.warn("Возвращены в очередь зависшие задачи: {}", requeued);
+        }
+
+        int freeSlots = storageJobExecutor.freeSlots();
+        if (freeSlots == 0) {
+            return;
+        }
+
+        int started = 0;
+        for (UUID jobId : storageJobRepository.findIdsByStatus(StorageJobStatus.QUEUED, Pageable.ofSize(freeSlots))) {
+            if (storageJobExecutor.tryStart(jobId)) {
+                started++;
+            }
+        }
+        if (started > 0) {
+            log.debug("Запущены задачи из очереди: {}", started);
+        }
+    }
+
+    /**
+     * Удаление завершенных задач и их результатов после срока хранения
+     */
+    @Scheduled(cron = "${storage-job-cleanup-cron:0 45 * * * *}")
+    @Async
+    public void removeExpiredJobs() {
+        var jobs = storageJobRepository.findFinishedBefore(
+                EnumSet.of(StorageJobStatus.SUCCEEDED, StorageJobStatus.FAILED, StorageJobStatus.CANCELLED),
+                Instant.now().minus(retention), Pageable.ofSize(BATCH_SIZE));
+
+        int removed = 0;
+        for (var job : jobs) {
+            if (job.getResultObject() != null && !jobResultStorage.remove(job.getResultObject())) {
+                continue;
+            }
+            storageJobRepository.delete(job);
+            removed++;
+        }
+        log.info("Удалены завершенные задачи: {}", removed);
+    }
+}
@@ -0,0 +1,53 @@
+package com.lostway.cloudfilestorage.scheduler;
+
+import com.lostway.cloudfilestorage.minio.DirectUploadService;
+import com.lostway.cloudfilestorage.minio.MultipartStreamUploader;
+import com.lostway.cloudfilestorage.minio.UploadSessionService;
+import com.lostway.cloudfilestorage.repository.UploadSessionRepository;
+import com.lostway.cloudfilestorage.repository.entity.UploadSessionStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionCleanupScheduler {
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionService uploadSessionService;
+    private final MultipartStreamUploader multipartStreamUploader;
+    private final DirectUploadService directUploadService;
+
+    @Value("${scheduler-batch-size}")
+    private int BATCH_SIZE;
+
+    @Value("${minio.upload.session.ttl:24h}")
+    private Duration sessionTtl;
+
+    /**
+     * Отмена заброшенных сессий загрузки, чтобы незавершенные части не занимали место в хранилище
+     */
+    @Scheduled(cron = "${upload-session-cleanup-cron:0 0 * * * *}")
+    @Async
+    public void abortStaleSessions() {
+        var sessions = uploadSessionRepository.findStaleSessions(
+                UploadSessionStatus.ACTIVE, Instant.now().minus(sessionTtl), Pageable.ofSize(BATCH_SIZE));
+
+        for (var session : sessions) {
+            if (UploadSessionService.isDirectUpload(session)) {
+                directUploadService.removeStagingObject(session);
+            } else {
+                multipartStreamUploader.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+            }
+            uploadSessionService.markClosed(session, UploadSessionStatus.EXPIRED);
+        }
+        log.info("Просроченные сессии загрузки отменены: {}", sessions.size());
+    }
+}
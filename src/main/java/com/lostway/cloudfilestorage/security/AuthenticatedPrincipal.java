@@ -0,0 +1,18 @@
+package com.lostway.cloudfilestorage.security;
+
+import java.time.Instant;
+
+/**
+ * Пользователь, от имени которого выполняется запрос. Определяется по JWT один раз на запрос
+ *
+ * @param userId     ID пользователя
+ * @param email      email пользователя
+ * @param rootFolder корневая папка пользователя в хранилище (user-{id}-files/)
+ * @param expiresAt  до какого момента действует токен
+ */
+public record AuthenticatedPrincipal(Long userId, String email, String rootFolder, Instant expiresAt) {
+
+    public static String rootFolderOf(Long userId) {
+        return "user-" + userId + "-files/";
+    }
+}
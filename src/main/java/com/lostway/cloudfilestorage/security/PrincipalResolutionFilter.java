@@ -0,0 +1,38 @@
+package com.lostway.cloudfilestorage.security;
+
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Определяет пользователя запроса сразу после проверки JWT, дальше сервисы берут его из атрибута запроса.
+ * Ошибки токена здесь не обрабатываются: доступ к ресурсам по-прежнему решает цепочка Spring Security.
+ * Регистрируется только в цепочке безопасности (не бин), чтобы не попасть в общую цепочку фильтров сервлета.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PrincipalResolutionFilter extends OncePerRequestFilter {
+
+    private final PrincipalResolver principalResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getHeader(HttpHeaders.AUTHORIZATION) != null) {
+            try {
+                principalResolver.resolve(request);
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("Не удалось определить пользователя запроса: {}", e.getMessage());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
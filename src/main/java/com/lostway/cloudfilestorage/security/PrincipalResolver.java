@@ -0,0 +1,132 @@
+package com.lostway.cloudfilestorage.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.lostway.jwtsecuritylib.JwtUtil;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Определение пользователя запроса по JWT. Результат хранится в атрибуте запроса, поэтому токен разбирается
+ * не больше одного раза на запрос. Проверенные токены дополнительно кэшируются по SHA-256 токена до истечения
+ * срока их действия (но не дольше max-ttl), так что подпись токена проверяется один раз на токен, а не на каждый запрос.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrincipalResolver {
+
+    /**
+     * Атрибут запроса, в котором хранится определенный пользователь
+     */
+    public static final String PRINCIPAL_ATTRIBUTE = AuthenticatedPrincipal.class.getName();
+
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.token-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.token-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${security.token-cache.max-ttl:15m}")
+    private Duration maxTtl;
+
+    private Cache<String, AuthenticatedPrincipal> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, AuthenticatedPrincipal>creating((tokenHash, principal) ->
+                        Duration.between(Instant.now(), principal.expiresAt())))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "security.verified.tokens");
+    }
+
+    /**
+     * Пользователь текущего запроса
+     *
+     * @throws JwtException > токена нет в запросе или он недействителен
+     */
+    public AuthenticatedPrincipal resolve(HttpServletRequest request) {
+        if (request.getAttribute(PRINCIPAL_ATTRIBUTE) instanceof AuthenticatedPrincipal principal) {
+            return principal;
+        }
+
+        String token = jwtUtil.getTokenFromHeader(request)
+                .orElseThrow(() -> new JwtException("JWT Token не был найден"));
+
+        AuthenticatedPrincipal principal = enabled
+                ? verifiedTokens.get(hash(token), tokenHash -> verify(token))
+                : verify(token);
+        if (!principal.expiresAt().isAfter(Instant.now())) {
+            verifiedTokens.invalidate(hash(token));
+            throw new JwtException("Срок действия JWT Token истек");
+        }
+
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+        return principal;
+    }
+
+    /**
+     * Проверка подписи и разбор токена. Срок действия берется из claim exp уже проверенного токена
+     */
+    private AuthenticatedPrincipal verify(String token) {
+        Long userId = jwtUtil.extractUserId(token);
+        String email = jwtUtil.extractEmail(token);
+
+        return new AuthenticatedPrincipal(userId, email, AuthenticatedPrincipal.rootFolderOf(userId), getExpiresAt(token));
+    }
+
+    private Instant getExpiresAt(String token) {
+        Instant maxExpiresAt = Instant.now().plus(maxTtl);
+        String[] parts = token.split("\\.");
+        if (parts.length < 2) {
+            return maxExpiresAt;
+        }
+
+        try {
+            JsonNode exp = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+            if (exp == null || !exp.canConvertToLong()) {
+                return maxExpiresAt;
+            }
+            Instant expiresAt = Instant.ofEpochSecond(exp.asLong());
+            return expiresAt.isBefore(maxExpiresAt) ? expiresAt : maxExpiresAt;
+        } catch (Exception e) {
+            log.debug("Не удалось прочитать срок действия токена: {}", e.getMessage());
+            return maxExpiresAt;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальный дисковый кэш часто скачиваемых объектов. Ключ - имя объекта и его ETag, поэтому измененный объект
+ * никогда не отдается из устаревшей копии. Объем ограничен суммарным размером файлов, вытеснение выбирает Caffeine
+ * (W-TinyLFU: учитывает и частоту, и давность обращений), файл вытесненной копии удаляется с диска.
+ * <p>
+ * Объект попадает в кэш только при повторном обращении (admit-after), копия скачивается в фоне,
+ * а текущий запрос отдается из MinIO. Индекс кэша хранится в памяти, при запуске каталог очищается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DiskObjectCache {
+
+    private final MinioClient minioClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${streaming.disk-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${streaming.disk-cache.directory:${java.io.tmpdir}/cloud-file-storage-cache}")
+    private Path directory;
+
+    @Value("${streaming.disk-cache.max-size:10GB}")
+    private DataSize maxSize;
+
+    @Value("${streaming.disk-cache.max-object-size:256MB}")
+    private DataSize maxObjectSize;
+
+    @Value("${streaming.disk-cache.admit-after:2}")
+    private int admitAfter;
+
+    /**
+     * Имена файлов кэша: object-<случайная часть>.part
+     */
+    private static final String COPY_PREFIX = "object-";
+
+    private static final String COPY_SUFFIX = ".part";
+
+    private AsyncCache<CacheKey, Path> cache;
+
+    /**
+     * Сколько раз недавно запрашивались объекты, которых еще нет в кэше
+     */
+    private Cache<CacheKey, Integer> recentMisses;
+
+    /**
+     * Ключ копии: объект с конкретным содержимым
+     */
+    private record CacheKey(String objectKey, String etag) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        deleteLeftoverCopies();
+
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CacheKey key, Path path) -> (int) Math.min(Integer.MAX_VALUE, sizeOf(path)))
+                .removalListener((CacheKey key, Path path, RemovalCause cause) -> deleteCopy(path))
+                .recordStats()
+                .buildAsync();
+        recentMisses = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "storage.disk.cache");
+        Gauge.builder("storage.disk.cache.bytes", cache, c -> c.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .description("Объем файлов в дисковом кэше")
+                .register(meterRegistry);
+        log.info("Дисковый кэш объектов: {}, до {}", directory, maxSize);
+    }
+
+    /**
+     * Копии прошлого запуска не используются (их ETag неизвестен), поэтому удаляются. Удаляются только файлы кэша:
+     * каталог может быть общим, остальное содержимое не трогается
+     */
+    private void deleteLeftoverCopies() throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> copies = Files.newDirectoryStream(directory, COPY_PREFIX + "*" + COPY_SUFFIX)) {
+            for (Path copy : copies) {
+                if (Files.isRegularFile(copy) && Files.deleteIfExists(copy)) {
+                    deleted++;
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Удалены копии прошлого запуска из дискового кэша: {}", deleted);
+        }
+    }
+
+    /**
+     * Поиск локальной копии объекта. Если копии нет, но объект запрашивается повторно, копия скачивается в фоне
+     *
+     * @param objectKey ключ объекта в MinIO
+     * @param etag      ETag объекта из статистики
+     * @param size      размер объекта
+     * @return путь до готовой локальной копии или пусто, если объект нужно читать из MinIO
+     */
+    public Optional<Path> lookup(String objectKey, String etag, long size) {
+        if (!enabled || size == 0 || size > maxObjectSize.toBytes()) {
+            return Optional.empty();
+        }
+
+        CacheKey key = new CacheKey(objectKey, etag);
+        CompletableFuture<Path> copy = cache.getIfPresent(key);
+        if (copy != null) {
+            return copy.isDone() && !copy.isCompletedExceptionally()
+                    ? Optional.of(copy.join())
+                    : Optional.empty();
+        }
+
+        if (recentMisses.asMap().merge(key, 1, Integer::sum) >= admitAfter) {
+            recentMisses.invalidate(key);
+            cache.get(key, (cacheKey, executor) -> CompletableFuture.supplyAsync(() -> download(cacheKey, size), executor));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Отдача части локальной копии. Копия могла быть вытеснена после lookup: тогда возвращается false
+     * и объект нужно читать из MinIO
+     *
+     * @return true --> диапазон отдан из локальной копии
+     */
+    public boolean transferTo(Path copy, long offset, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            log.debug("Локальная копия {} уже вытеснена", copy);
+            return false;
+        }
+    }
+
+    private Path download(CacheKey key, long size) {
+        Path copy = null;
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(key.objectKey())
+                        .matchETag(key.etag())
+                        .build())) {
+            copy = Files.createTempFile(directory, COPY_PREFIX, COPY_SUFFIX);
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+
+            if (Files.size(copy) != size) {
+                throw new IOException("Размер копии не совпадает с размером объекта");
+            }
+            log.debug("Объект '{}' сохранен в дисковый кэш", key.objectKey());
+            return copy;
+        } catch (Exception e) {
+            deleteCopy(copy);
+            log.warn("Не удалось сохранить объект '{}' в дисковый кэш: {}", key.objectKey(), e.getMessage());
+            throw new FileStorageException("Не удалось сохранить объект в дисковый кэш", e);
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteCopy(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить копию {} из дискового кэша", path, e);
+        }
+    }
+}
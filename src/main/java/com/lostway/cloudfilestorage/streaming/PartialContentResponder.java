@@ -0,0 +1,218 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import com.lostway.cloudfilestorage.exception.dto.ResourceDownloadException;
+import com.lostway.cloudfilestorage.streaming.StreamingLimiter.StreamType;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Отдача объекта из MinIO с поддержкой условных запросов (If-None-Match / If-Modified-Since --> 304)
+ * и запросов части содержимого (Range --> 206, несколько диапазонов --> multipart/byteranges).
+ * Из хранилища читаются только запрошенные диапазоны. Популярные объекты отдаются из локального дискового кэша.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartialContentResponder {
+
+    private final MinioClient minioClient;
+    private final StreamingLimiter streamingLimiter;
+    private final DiskObjectCache diskObjectCache;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    /**
+     * Ответ на запрос скачивания объекта
+     *
+     * @param objectKey ключ объекта в MinIO
+     * @param stat      статистика объекта (ETag, дата изменения, размер)
+     * @return 200 с полным объектом, 206 с диапазонами, 304/412 по условным заголовкам или 416 для диапазона за пределами объекта
+     */
+    public ResponseEntity<StreamingResponseBody> respond(String objectKey, StatObjectResponse stat,
+                                                         HttpServletRequest request, HttpServletResponse response) {
+        String etag = "\"" + stat.etag() + "\"";
+        long lastModified = stat.lastModified().toInstant().toEpochMilli();
+        long size = stat.size();
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            log.debug("Объект '{}' не изменился, статус {}", objectKey, response.getStatus());
+            return ResponseEntity.status(response.getStatus()).build();
+        }
+
+        ObjectSource source = new ObjectSource(objectKey, diskObjectCache.lookup(objectKey, stat.etag(), size).orElse(null));
+
+        List<HttpRange> ranges;
+        try {
+            ranges = isIfRangeSatisfied(request, etag, lastModified)
+                    ? HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE))
+                    : List.of();
+        } catch (IllegalArgumentException e) {
+            // RFC 9110: Range с неизвестной единицей или неверным синтаксисом игнорируется, отдается весь объект.
+            // 416 возвращается только для диапазонов, которые нельзя удовлетворить (см. ByteRegion.of)
+            log.debug("Заголовок Range для '{}' проигнорирован: {}", objectKey, e.getMessage());
+            ranges = List.of();
+        }
+
+        if (ranges.isEmpty()) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(size)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(streamingLimiter.admit(StreamType.DOWNLOAD, out -> writeRange(source, 0, size, out)));
+        }
+
+        List<ByteRegion> regions;
+        try {
+            regions = ranges.stream()
+                    .map(range -> ByteRegion.of(range, size))
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(size);
+        }
+
+        return regions.size() == 1
+                ? singleRange(source, regions.getFirst(), size)
+                : multipleRanges(source, regions, size);
+    }
+
+    private ResponseEntity<StreamingResponseBody> singleRange(ObjectSource source, ByteRegion region, long size) {
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(region.length())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, region.contentRange(size))
+                .body(streamingLimiter.admit(StreamType.DOWNLOAD,
+                        out -> writeRange(source, region.start(), region.length(), out)));
+    }
+
+    /**
+     * Несколько диапазонов отдаются одним ответом multipart/byteranges, каждый диапазон - отдельной частью
+     */
+    private ResponseEntity<StreamingResponseBody> multipleRanges(ObjectSource source, List<ByteRegion> regions, long size) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+        StreamingResponseBody body = out -> {
+            for (ByteRegion region : regions) {
+                String partHeaders = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(size) + "\r\n\r\n";
+                out.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                writeRange(source, region.start(), region.length(), out);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(streamingLimiter.admit(StreamType.DOWNLOAD, body));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+
+    /**
+     * If-Range: диапазон отдается, только если объект не изменился (по ETag или дате изменения),
+     * иначе отдается весь объект
+     */
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeRange(ObjectSource source, long offset, long length, OutputStream out) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (source.cachedCopy() != null && diskObjectCache.transferTo(source.cachedCopy(), offset, length, out)) {
+            return;
+        }
+
+        String objectKey = source.objectKey();
+        try (InputStream in = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectKey)
+                        .offset(offset)
+                        .length(length)
+                        .build())) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Ошибка при скачивании объекта '{}' ({} байт с {})", objectKey, length, offset, e);
+            throw new ResourceDownloadException("Ошибка при попытке скачать файл");
+        }
+    }
+
+    /**
+     * Откуда читать объект
+     *
+     * @param objectKey  ключ объекта в MinIO
+     * @param cachedCopy локальная копия из дискового кэша (null --> читать из MinIO)
+     */
+    private record ObjectSource(String objectKey, Path cachedCopy) {
+    }
+
+    /**
+     * Диапазон байт объекта
+     *
+     * @param start  смещение первого байта
+     * @param length количество байт
+     */
+    private record ByteRegion(long start, long length) {
+
+        /**
+         * @throws IllegalArgumentException > диапазон начинается за пределами объекта
+         */
+        static ByteRegion of(HttpRange range, long size) {
+            long start = range.getRangeStart(size);
+            if (start >= size) {
+                throw new IllegalArgumentException("Диапазон за пределами объекта");
+            }
+            long end = range.getRangeEnd(size);
+            return new ByteRegion(start, end - start + 1);
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + (start + length - 1) + "/" + size;
+        }
+    }
+}
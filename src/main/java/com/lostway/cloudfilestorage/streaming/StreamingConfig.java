@@ -0,0 +1,61 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Отдельный пул потоков для StreamingResponseBody (скачивание файлов, ZIP архивы и потоковые листинги).
+ * Пул не регистрируется как бин, чтобы не подменять исполнителя для @Async задач.
+ * Количество одновременных потоков ограничивает StreamingLimiter, поэтому размер пула равен сумме лимитов всех его очередей:
+ * каждый допущенный ответ сразу получает поток и не ждет в очереди пула за ответами другого типа.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class StreamingConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final StreamingLimiter streamingLimiter;
+
+    @Value("${streaming.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolTaskExecutor threadPoolExecutor;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(createStreamingExecutor());
+    }
+
+    private AsyncTaskExecutor createStreamingExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("streaming-");
+            executor.setVirtualThreads(true);
+            log.info("Потоковые ответы выполняются на виртуальных потоках");
+            return executor;
+        }
+
+        int poolSize = streamingLimiter.totalLimit();
+        threadPoolExecutor = new ThreadPoolTaskExecutor();
+        threadPoolExecutor.setCorePoolSize(poolSize);
+        threadPoolExecutor.setMaxPoolSize(poolSize);
+        threadPoolExecutor.setThreadNamePrefix("streaming-");
+        threadPoolExecutor.initialize();
+        log.info("Пул потоковых ответов: {} потоков", poolSize);
+        return threadPoolExecutor;
+    }
+
+    @Override
+    public void destroy() {
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdown();
+        }
+    }
+}
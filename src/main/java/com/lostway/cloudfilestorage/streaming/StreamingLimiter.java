@@ -0,0 +1,134 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import com.lostway.cloudfilestorage.exception.dto.StreamingCapacityExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничение количества одновременных потоковых ответов. Скачивание файлов, сборка ZIP архивов
+ * и потоковые листинги папок ограничиваются отдельно, чтобы всплеск тяжелых архивов не занимал все потоки,
+ * а легкие листинги не ждали места за скачиваниями больших файлов.
+ * Разрешение берется в потоке запроса: если место не освободилось за queue-timeout, клиент получает 503
+ * до отправки заголовков. Разрешение возвращается, когда тело ответа записано полностью.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamingLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${streaming.max-downloads:64}")
+    private int maxDownloads;
+
+    @Value("${streaming.max-zips:4}")
+    private int maxZips;
+
+    @Value("${streaming.max-listings:128}")
+    private int maxListings;
+
+    @Value("${streaming.queue-timeout:5s}")
+    private Duration queueTimeout;
+
+    private final Map<StreamType, Lane> lanes = new EnumMap<>(StreamType.class);
+
+    public enum StreamType {
+        DOWNLOAD,
+        ZIP,
+        LISTING
+    }
+
+    @PostConstruct
+    void init() {
+        lanes.put(StreamType.DOWNLOAD, new Lane(maxDownloads));
+        lanes.put(StreamType.ZIP, new Lane(maxZips));
+        lanes.put(StreamType.LISTING, new Lane(maxListings));
+
+        lanes.forEach((type, lane) -> {
+            String tag = type.name().toLowerCase();
+            Gauge.builder("storage.streams.active", lane, Lane::active)
+                    .description("Потоковые ответы, которые сейчас отправляются")
+                    .tag("type", tag)
+                    .register(meterRegistry);
+            Gauge.builder("storage.streams.queued", lane, Lane::queued)
+                    .description("Потоковые ответы, ожидающие свободного места")
+                    .tag("type", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Сколько потоковых ответов может выполняться одновременно во всех очередях вместе
+     */
+    public int totalLimit() {
+        return lanes.values().stream().mapToInt(lane -> lane.limit).sum();
+    }
+
+    /**
+     * Получение разрешения на потоковый ответ
+     *
+     * @param type тип ответа (скачивание файла, ZIP архив или листинг папки)
+     * @param body тело ответа
+     * @return тело ответа, которое вернет разрешение после записи
+     * @throws StreamingCapacityExceededException > место не освободилось за queue-timeout
+     */
+    public StreamingResponseBody admit(StreamType type, StreamingResponseBody body) {
+        Lane lane = lanes.get(type);
+        lane.acquire(type);
+
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                lane.permits.release();
+            }
+        };
+    }
+
+    private class Lane {
+        private final int limit;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private Lane(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        private void acquire(StreamType type) {
+            queued.incrementAndGet();
+            try {
+                if (!permits.tryAcquire(queueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    log.warn("Нет свободного места для потокового ответа {}, занято: {}", type, limit);
+                    throw new StreamingCapacityExceededException("Сервер перегружен, повторите запрос позже");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StreamingCapacityExceededException("Ожидание свободного места было прервано");
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        private double active() {
+            return limit - permits.availablePermits();
+        }
+
+        private double queued() {
+            return queued.get();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+/**
+ * Сборка ZIP архива из объектов MinIO с упреждающей загрузкой. Пока в архив пишется текущий файл,
+ * следующие prefetch файлов уже скачиваются параллельно в буферы, поэтому задержка до первого байта
+ * каждого объекта не останавливает запись архива. Файлы пишутся строго в порядке листинга.
+ * <p>
+ * Память ограничена дважды: на один архив (archive-buffer) и на весь узел (node-buffer).
+ * Крупные файлы и файлы, для которых не хватило буфера, не буферизуются, а передаются потоком в свою очередь.
+ * <p>
+ * Уже сжатые форматы (PDF, DOCX, архивы, медиа) кладутся в архив без сжатия (STORED), остальные файлы сжимаются,
+ * только если пробное сжатие начала файла дает заметный выигрыш. Если все записи STORED, длина архива известна заранее.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ZipArchiveStreamer {
+
+    private final MinioClient minioClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${streaming.zip.prefetch:8}")
+    private int prefetch;
+
+    @Value("${streaming.zip.max-buffered-object-size:8MB}")
+    private DataSize maxBufferedObjectSize;
+
+    @Value("${streaming.zip.archive-buffer:64MB}")
+    private DataSize archiveBuffer;
+
+    @Value("${streaming.zip.node-buffer:512MB}")
+    private DataSize nodeBuffer;
+
+    @Value("${streaming.zip.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${streaming.zip.stored-extensions:pdf,docx,xlsx,pptx,zip,gz,7z,rar,jpg,jpeg,png,gif,webp,mp3,mp4,mov,mkv}")
+    private Set<String> storedExtensions;
+
+    /**
+     * Сколько первых байт файла сжимается для проверки, стоит ли сжимать файл целиком
+     */
+    private static final int PROBE_SIZE = 64 * 1024;
+
+    /**
+     * Файлы меньше этого размера не сжимаются: выигрыш меньше затрат
+     */
+    private static final int MIN_DEFLATE_SIZE = 512;
+
+    /**
+     * Файл сжимается, если пробное сжатие уменьшает его хотя бы на 10%
+     */
+    private static final double MAX_DEFLATE_RATIO = 0.9;
+
+    private Semaphore nodeBufferBytes;
+
+    private final ExecutorService prefetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    void init() {
+        int nodeLimit = toPermits(nodeBuffer);
+        nodeBufferBytes = new Semaphore(nodeLimit);
+        Gauge.builder("storage.zip.buffered.bytes", nodeBufferBytes, permits -> nodeLimit - permits.availablePermits())
+                .description("Байты, занятые буферами упреждающей загрузки ZIP архивов")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Файл, который нужно положить в архив
+     *
+     * @param entryName имя записи в архиве
+     * @param objectKey ключ объекта в MinIO
+     * @param size      размер объекта из листинга
+     */
+    public record ZipSource(String entryName, String objectKey, long size) {
+    }
+
+    /**
+     * Длина архива, если ее можно посчитать заранее (все записи будут STORED по расширению)
+     *
+     * @param sources файлы архива
+     * @return длина архива в байтах или пусто, если часть файлов может быть сжата
+     */
+    public OptionalLong contentLength(List<ZipSource> sources) {
+        if (!isFixedLength(sources)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(ZipStreamWriter.storedArchiveLength(
+                sources.stream().map(ZipSource::entryName).toList(),
+                sources.stream().map(ZipSource::size).toList()));
+    }
+
+    /**
+     * Запись архива в поток. Ошибка чтения отдельного файла не прерывает архив: запись остается пустой.
+     * Если длина архива была объявлена заранее (см. contentLength), такая ошибка прерывает ответ,
+     * потому что иначе клиент получит архив не той длины
+     *
+     * @param out     поток ответа
+     * @param sources файлы в том порядке, в котором они попадут в архив
+     */
+    public void write(OutputStream out, List<ZipSource> sources) throws IOException {
+        write(out, sources, source -> {
+        });
+    }
+
+    /**
+     * Запись архива в поток с уведомлением о каждой записанной записи (ход фоновой архивации).
+     * Исключение из onEntryWritten прерывает архив
+     *
+     * @param onEntryWritten вызывается после записи каждого файла, в том числе оставшегося пустым из-за ошибки
+     * @see #write(OutputStream, List)
+     */
+    public void write(OutputStream out, List<ZipSource> sources, Consumer<ZipSource> onEntryWritten) throws IOException {
+        boolean fixedLength = isFixedLength(sources);
+        Iterator<ZipSource> pending = sources.iterator();
+        Semaphore archiveBufferBytes = new Semaphore(toPermits(archiveBuffer));
+        Deque<PendingEntry> window = new ArrayDeque<>();
+        ZipSource postponed = null;
+
+        try (ZipStreamWriter zipOut = new ZipStreamWriter(out, compressionLevel)) {
+            while (true) {
+                while (window.size() < prefetch && (postponed != null || pending.hasNext())) {
+                    ZipSource source = postponed != null ? postponed : pending.next();
+                    postponed = null;
+
+                    if (source.size() > maxBufferedObjectSize.toBytes()) {
+                        window.add(new PendingEntry(source, null, 0, null));
+                    } else if (tryReserve(archiveBufferBytes, (int) source.size())) {
+                        window.add(new PendingEntry(source, fetchAsync(source), (int) source.size(), archiveBufferBytes));
+                    } else if (window.isEmpty()) {
+                        window.add(new PendingEntry(source, null, 0, null));
+                    } else {
+                        postponed = source;
+                        break;
+                    }
+                }
+
+                PendingEntry entry = window.poll();
+                if (entry == null) {
+                    break;
+                }
+                try {
+                    writeEntry(zipOut, entry, fixedLength);
+                } finally {
+                    release(entry);
+                }
+                onEntryWritten.accept(entry.source());
+            }
+            zipOut.finish();
+        } finally {
+            window.forEach(this::releaseWhenFetched);
+        }
+    }
+
+    private void writeEntry(ZipStreamWriter zipOut, PendingEntry entry, boolean fixedLength) throws IOException {
+        ZipSource source = entry.source();
+        boolean started = false;
+
+        try (InputStream in = openContent(entry)) {
+            byte[] head = in.readNBytes(PROBE_SIZE);
+            OutputStream entryOut = zipOut.putNextEntry(source.entryName(), shouldDeflate(source, head));
+            started = true;
+
+            entryOut.write(head);
+            long written = head.length + in.transferTo(entryOut);
+            if (fixedLength && written != source.size()) {
+                throw new IOException("Размер файла изменился во время архивации: " + source.objectKey());
+            }
+        } catch (Exception e) {
+            if (fixedLength) {
+                throw e instanceof IOException ioException ? ioException : new IOException(e);
+            }
+            log.error("Не удалось добавить файл {} в архив: {}", source.objectKey(), e.getMessage());
+            if (!started) {
+                zipOut.putNextEntry(source.entryName(), false);
+            }
+        }
+
+        zipOut.closeEntry();
+    }
+
+    private InputStream openContent(PendingEntry entry) throws Exception {
+        if (entry.content() == null) {
+            return openObject(entry.source().objectKey());
+        }
+
+        byte[] content = entry.content().join();
+        if (content == null) {
+            throw new IOException("Файл не был скачан");
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Выбор сжатия для записи: уже сжатые форматы не сжимаются, для остальных решает пробное сжатие начала файла
+     *
+     * @param head первые байты файла
+     * @return true --> DEFLATE, false --> STORED
+     */
+    private boolean shouldDeflate(ZipSource source, byte[] head) {
+        if (isStoredByExtension(source) || compressionLevel == 0 || head.length < MIN_DEFLATE_SIZE) {
+            return false;
+        }
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(head);
+            deflater.finish();
+            byte[] buffer = new byte[head.length];
+            int compressed = 0;
+            while (!deflater.finished() && compressed < head.length) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed < head.length * MAX_DEFLATE_RATIO;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Длина архива известна заранее, только если ни одна запись не будет сжата
+     */
+    private boolean isFixedLength(List<ZipSource> sources) {
+        return compressionLevel == 0 || sources.stream().allMatch(this::isStoredByExtension);
+    }
+
+    private boolean isStoredByExtension(ZipSource source) {
+        String name = source.entryName();
+        int dot = name.lastIndexOf('.');
+        return name.endsWith("/")
+                || dot >= 0 && storedExtensions.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    private CompletableFuture<byte[]> fetchAsync(ZipSource source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = openObject(source.objectKey())) {
+                return in.readNBytes((int) source.size());
+            } catch (Exception e) {
+                log.error("Не удалось добавить файл {} в архив: {}", source.objectKey(), e.getMessage());
+                return null;
+            }
+        }, prefetchExecutor);
+    }
+
+    private InputStream openObject(String objectKey) throws Exception {
+        return minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectKey)
+                        .build());
+    }
+
+    /**
+     * Резервирование буфера сразу в лимите архива и в лимите узла
+     */
+    private boolean tryReserve(Semaphore archiveBufferBytes, int bytes) {
+        if (!archiveBufferBytes.tryAcquire(bytes)) {
+            return false;
+        }
+        if (!nodeBufferBytes.tryAcquire(bytes)) {
+            archiveBufferBytes.release(bytes);
+            return false;
+        }
+        return true;
+    }
+
+    private static int toPermits(DataSize size) {
+        return (int) Math.min(Integer.MAX_VALUE, size.toBytes());
+    }
+
+    /**
+     * Запись архива в очереди на запись
+     *
+     * @param content            содержимое, которое скачивается заранее (null --> файл передается потоком)
+     * @param reservedBytes      размер зарезервированного буфера
+     * @param archiveBufferBytes лимит буфера архива, из которого зарезервирован буфер
+     */
+    private record PendingEntry(ZipSource source, CompletableFuture<byte[]> content, int reservedBytes,
+                                Semaphore archiveBufferBytes) {
+    }
+
+    /**
+     * Архив прерван (например, клиент отключился): буфер освобождается, когда уже начатая загрузка завершится
+     */
+    private void releaseWhenFetched(PendingEntry entry) {
+        if (entry.content() != null) {
+            entry.content().whenComplete((content, e) -> release(entry));
+        }
+    }
+
+    private void release(PendingEntry entry) {
+        if (entry.reservedBytes() > 0) {
+            entry.archiveBufferBytes().release(entry.reservedBytes());
+            nodeBufferBytes.release(entry.reservedBytes());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Потоковая запись ZIP архива. В отличие от ZipOutputStream для каждой записи можно выбрать STORED или DEFLATE,
+ * причем STORED не требует заранее известной CRC: CRC и размеры пишутся после данных (data descriptor).
+ * Все записи всегда пишутся в формате Zip64, поэтому размер архива и отдельных файлов не ограничен 4GB,
+ * а длина архива из одних STORED записей вычисляется заранее (см. storedArchiveLength).
+ */
+public class ZipStreamWriter implements AutoCloseable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int LOCAL_ZIP64_EXTRA_SIZE = 20;
+    private static final int DATA_DESCRIPTOR_SIZE = 24;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int CENTRAL_ZIP64_EXTRA_SIZE = 28;
+    private static final int END_RECORDS_SIZE = 56 + 20 + 22;
+
+    private static final int VERSION_ZIP64 = 45;
+
+    /**
+     * Бит 3 - CRC и размеры записаны после данных, бит 11 - имена в UTF-8
+     */
+    private static final int FLAGS = 0x0808;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final CountingOutputStream out;
+    private final int compressionLevel;
+    private final int dosTime;
+    private final int dosDate;
+    private final List<CentralEntry> entries = new ArrayList<>();
+
+    private CentralEntry currentEntry;
+    private CountingOutputStream currentData;
+    private DeflaterOutputStream currentDeflater;
+    private Deflater currentDeflaterEngine;
+    private CRC32 currentCrc;
+
+    /**
+     * @param out              поток, куда пишется архив (не закрывается)
+     * @param compressionLevel уровень сжатия для DEFLATE записей (1-9)
+     */
+    public ZipStreamWriter(OutputStream out, int compressionLevel) {
+        this.out = new CountingOutputStream(out);
+        this.compressionLevel = compressionLevel;
+
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() >> 1;
+        this.dosDate = Math.max(0, now.getYear() - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+    }
+
+    /**
+     * Точная длина архива, в котором все записи STORED
+     *
+     * @param names имена записей
+     * @param sizes размеры файлов в том же порядке
+     * @return длина архива в байтах
+     */
+    public static long storedArchiveLength(List<String> names, List<Long> sizes) {
+        long length = END_RECORDS_SIZE;
+        for (int i = 0; i < names.size(); i++) {
+            int nameLength = names.get(i).getBytes(StandardCharsets.UTF_8).length;
+            length += LOCAL_HEADER_SIZE + nameLength + LOCAL_ZIP64_EXTRA_SIZE + sizes.get(i) + DATA_DESCRIPTOR_SIZE;
+            length += CENTRAL_HEADER_SIZE + nameLength + CENTRAL_ZIP64_EXTRA_SIZE;
+        }
+        return length;
+    }
+
+    /**
+     * Начало новой записи. Предыдущая запись закрывается автоматически
+     *
+     * @param name    имя записи (путь внутри архива)
+     * @param deflate true --> DEFLATE, false --> STORED
+     * @return поток для содержимого записи (закрывать не нужно)
+     */
+    public OutputStream putNextEntry(String name, boolean deflate) throws IOException {
+        closeEntry();
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        currentEntry = new CentralEntry(nameBytes, deflate ? METHOD_DEFLATED : METHOD_STORED, out.count());
+
+        ByteBuffer header = littleEndian(LOCAL_HEADER_SIZE + nameBytes.length + LOCAL_ZIP64_EXTRA_SIZE);
+        header.putInt(LOCAL_HEADER_SIGNATURE)
+                .putShort((short) VERSION_ZIP64)
+                .putShort((short) FLAGS)
+                .putShort((short) currentEntry.method)
+                .putShort((short) dosTime)
+                .putShort((short) dosDate)
+                .putInt(0)
+                .putInt((int) ZIP64_MAGIC)
+                .putInt((int) ZIP64_MAGIC)
+                .putShort((short) nameBytes.length)
+                .putShort((short) LOCAL_ZIP64_EXTRA_SIZE)
+                .put(nameBytes)
+                .putShort((short) 0x0001)
+                .putShort((short) 16)
+                .putLong(0)
+                .putLong(0);
+        out.write(header.array());
+
+        currentCrc = new CRC32();
+        currentData = new CountingOutputStream(out);
+
+        OutputStream compressed = currentData;
+        if (deflate) {
+            currentDeflaterEngine = new Deflater(compressionLevel, true);
+            currentDeflater = new DeflaterOutputStream(currentData, currentDeflaterEngine, 64 * 1024);
+            compressed = currentDeflater;
+        }
+
+        OutputStream target = compressed;
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                currentCrc.update(b, off, len);
+                currentEntry.size += len;
+                target.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Закрытие текущей записи: дописываются CRC и размеры (data descriptor)
+     */
+    public void closeEntry() throws IOException {
+        if (currentEntry == null) {
+            return;
+        }
+
+        if (currentDeflater != null) {
+            currentDeflater.finish();
+            currentDeflaterEngine.end();
+            currentDeflater = null;
+        }
+        currentEntry.crc = currentCrc.getValue();
+        currentEntry.compressedSize = currentData.count();
+
+        ByteBuffer descriptor = littleEndian(DATA_DESCRIPTOR_SIZE);
+        descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE)
+                .putInt((int) currentEntry.crc)
+                .putLong(currentEntry.compressedSize)
+                .putLong(currentEntry.size);
+        out.write(descriptor.array());
+
+        entries.add(currentEntry);
+        currentEntry = null;
+    }
+
+    /**
+     * Запись центрального каталога. Поток архива не закрывается
+     */
+    public void finish() throws IOException {
+        closeEntry();
+
+        long centralStart = out.count();
+        for (CentralEntry entry : entries) {
+            boolean directory = entry.name.length > 0 && entry.name[entry.name.length - 1] == '/';
+            ByteBuffer header = littleEndian(CENTRAL_HEADER_SIZE + entry.name.length + CENTRAL_ZIP64_EXTRA_SIZE);
+            header.putInt(CENTRAL_HEADER_SIGNATURE)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) FLAGS)
+                    .putShort((short) entry.method)
+                    .putShort((short) dosTime)
+                    .putShort((short) dosDate)
+                    .putInt((int) entry.crc)
+                    .putInt((int) ZIP64_MAGIC)
+                    .putInt((int) ZIP64_MAGIC)
+                    .putShort((short) entry.name.length)
+                    .putShort((short) CENTRAL_ZIP64_EXTRA_SIZE)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(directory ? 0x10 : 0)
+                    .putInt((int) ZIP64_MAGIC)
+                    .put(entry.name)
+                    .putShort((short) 0x0001)
+                    .putShort((short) 24)
+                    .putLong(entry.size)
+                    .putLong(entry.compressedSize)
+                    .putLong(entry.localHeaderOffset);
+            out.write(header.array());
+        }
+        long centralEnd = out.count();
+
+        ByteBuffer end = littleEndian(END_RECORDS_SIZE);
+        end.putInt(ZIP64_END_SIGNATURE)
+                .putLong(44)
+                .putShort((short) VERSION_ZIP64)
+                .putShort((short) VERSION_ZIP64)
+                .putInt(0)
+                .putInt(0)
+                .putLong(entries.size())
+                .putLong(entries.size())
+                .putLong(centralEnd - centralStart)
+                .putLong(centralStart);
+        end.putInt(ZIP64_LOCATOR_SIGNATURE)
+                .putInt(0)
+                .putLong(centralEnd)
+                .putInt(1);
+        end.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0xFFFF)
+                .putShort((short) 0xFFFF)
+                .putInt((int) ZIP64_MAGIC)
+                .putInt((int) ZIP64_MAGIC)
+                .putShort((short) 0);
+        out.write(end.array());
+        out.flush();
+    }
+
+    /**
+     * Освобождение Deflater, если архив не был дописан
+     */
+    @Override
+    public void close() {
+        if (currentDeflater != null) {
+            currentDeflaterEngine.end();
+            currentDeflater = null;
+        }
+    }
+
+    private static ByteBuffer littleEndian(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static final class CentralEntry {
+        private final byte[] name;
+        private final int method;
+        private final long localHeaderOffset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private CentralEntry(byte[] name, int method, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long count() {
+            return count;
+        }
+    }
+}
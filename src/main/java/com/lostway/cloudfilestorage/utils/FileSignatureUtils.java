@@ -0,0 +1,126 @@
+package com.lostway.cloudfilestorage.utils;
+
+import com.lostway.cloudfilestorage.exception.dto.BadFormatException;
+import com.lostway.cloudfilestorage.exception.dto.FileStorageException;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Проверка содержимого файла по первым байтам (сигнатуре), а не только по расширению.
+ * Проверка выполняется до начала записи в хранилище, чтобы не загружать и потом не удалять неподходящие файлы.
+ */
+@Slf4j
+public class FileSignatureUtils {
+
+    /**
+     * Сколько первых байт файла читается для проверки
+     */
+    public static final int SNIFF_SIZE = 8 * 1024;
+
+    /**
+     * Заголовок PDF может находиться не в самом начале файла, но в пределах первых 1024 байт
+     */
+    private static final int PDF_HEADER_SEARCH_LIMIT = 1024;
+
+    private static final byte[] PDF_SIGNATURE = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ZIP_LOCAL_FILE_SIGNATURE = {'P', 'K', 3, 4};
+
+    /**
+     * Записи, по одной из которых ZIP архив опознается как документ Office Open XML
+     */
+    private static final String[] DOCX_ENTRIES = {"[Content_Types].xml", "_rels/", "word/"};
+
+    private FileSignatureUtils() {
+    }
+
+    /**
+     * Проверка сигнатуры потока. Прочитанные байты не теряются: возвращается поток,
+     * который отдает их заново, а затем продолжает читать исходный поток
+     *
+     * @param in       поток с содержимым файла
+     * @param fileType формат файла, определенный по расширению
+     * @return поток с полным содержимым файла
+     * @throws BadFormatException > содержимое не соответствует формату
+     */
+    public static InputStream checkSignature(InputStream in, ContentType fileType) {
+        try {
+            byte[] head = in.readNBytes(SNIFF_SIZE);
+            checkSignature(head, fileType);
+            return new SequenceInputStream(new ByteArrayInputStream(head), in);
+        } catch (IOException e) {
+            throw new FileStorageException("Ошибка при чтении тела запроса", e);
+        }
+    }
+
+    /**
+     * Проверка сигнатуры по первым байтам файла
+     *
+     * @param head     начало файла (достаточно первых SNIFF_SIZE байт)
+     * @param fileType формат файла, определенный по расширению
+     * @throws BadFormatException > содержимое не соответствует формату
+     */
+    public static void checkSignature(byte[] head, ContentType fileType) {
+        boolean valid = switch (fileType) {
+            case PDF -> isPdf(head);
+            case DOCX -> isDocx(head);
+        };
+
+        if (!valid) {
+            log.debug("Содержимое файла не соответствует формату {}", fileType);
+            throw new BadFormatException("Содержимое файла не соответствует формату " + fileType);
+        }
+    }
+
+    /**
+     * PDF: заголовок %PDF-x.y в пределах первых 1024 байт
+     */
+    private static boolean isPdf(byte[] head) {
+        int limit = Math.min(head.length, PDF_HEADER_SEARCH_LIMIT);
+        int offset = indexOf(head, PDF_SIGNATURE, limit);
+        int versionOffset = offset + PDF_SIGNATURE.length;
+        return offset >= 0 && versionOffset < head.length && Character.isDigit(head[versionOffset]);
+    }
+
+    /**
+     * DOCX: ZIP архив (локальный заголовок PK\3\4 в начале), в первых записях которого есть служебные файлы Office Open XML
+     */
+    private static boolean isDocx(byte[] head) {
+        if (indexOf(head, ZIP_LOCAL_FILE_SIGNATURE, ZIP_LOCAL_FILE_SIGNATURE.length) != 0) {
+            return false;
+        }
+
+        String names = new String(head, StandardCharsets.ISO_8859_1);
+        for (String entry : DOCX_ENTRIES) {
+            if (names.contains(entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Поиск последовательности байт, которая начинается не дальше limit
+     *
+     * @return смещение начала последовательности или -1
+     */
+    private static int indexOf(byte[] data, byte[] pattern, int limit) {
+        int lastStart = Math.min(limit, data.length - pattern.length + 1);
+        for (int i = 0; i < lastStart; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
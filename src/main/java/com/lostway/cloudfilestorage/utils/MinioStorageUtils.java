@@ -1,17 +1,31 @@
 package com.lostway.cloudfilestorage.utils;
 
 import com.lostway.cloudfilestorage.exception.dto.InvalidFolderPathException;
-import com.lostway.jwtsecuritylib.JwtUtil;
-import io.jsonwebtoken.JwtException;
+import com.lostway.cloudfilestorage.security.PrincipalResolver;
+import com.lostway.jwtsecuritylib.kafka.enums.ContentType;
+import io.minio.errors.ErrorResponseException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
 @Slf4j
 @Component
 public class MinioStorageUtils {
 
+    /**
+     * Заголовок условной записи: объект создается, только если по этому ключу еще ничего нет
+     */
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    public static final Map<String, String> CREATE_IF_ABSENT_HEADERS = Map.of(IF_NONE_MATCH_HEADER, "*");
+
     /**
      * Получение имени папки/файла, исключая его путь.
      *
@@ -19,12 +33,7 @@ public class MinioStorageUtils {
      * @return Имя файла/папки test/test2.txt --> test2.txt
      */
     public static String getNameFromPath(String folderPath) {
-        String trimmedPath = folderPath.endsWith("/")
-                ? folderPath.substring(0, folderPath.length() - 1)
-                : folderPath;
-
-        String[] parts = trimmedPath.split("/");
-        return parts[parts.length - 1];
+        return PathCodec.name(folderPath);
     }
 
     /**
@@ -47,14 +56,7 @@ public class MinioStorageUtils {
      * false --> это файл
      */
     public static boolean isFolderPath(String path) {
-        if (path.endsWith("/")) {
-            return true;
-        }
-
-        int lastSlashIndex = path.lastIndexOf('/');
-        String lastSegment = lastSlashIndex == -1 ? path : path.substring(lastSlashIndex + 1);
-
-        return !lastSegment.contains(".");
+        return PathCodec.isFolder(path);
     }
 
 
@@ -81,7 +83,7 @@ public class MinioStorageUtils {
      * @param folderPath путь к папке (используется только для папок, для файлов не подойдет)
      */
     public static void checkFolderPath(String folderPath) {
-        if (!folderPath.matches("^(?!.*//)(?!.*\\.{1,2})([\\p{L}\\d _-]+/)*$")) {
+        if (!PathCodec.isValidFolderPath(folderPath)) {
             throw new InvalidFolderPathException("Недопустимый путь к папке: " + folderPath);
         }
     }
@@ -92,44 +94,35 @@ public class MinioStorageUtils {
      * @param path путь к файлу (используется только для файлов, для папок не подойдет)
      */
     public static void validatePathToFile(String path) {
-        if (!path.matches("^(?!.*//)(?!.*(?:^|/)\\.)(?!.*(?:^|/)\\.\\.)([\\p{L}\\p{N} _\\-]+/)*[\\p{L}\\p{N} _\\-]+\\.[\\p{L}\\p{N}]+$")) {
+        if (!PathCodec.isValidFilePath(path)) {
             throw new InvalidFolderPathException("Недопустимый путь: " + path);
         }
     }
 
     public static String getStandardPath(String path) {
-        if (path == null || path.isBlank()) {
-            path = "";
-        }
-
-        return path.replaceAll("^/+", "");
+        return PathCodec.stripLeadingSlashes(path);
     }
 
     /**
-     * Получение корневой папки по userId из контекста.
+     * Получение корневой папки пользователя текущего запроса.
      *
-     * @return ID текущего пользователя
+     * @return корневая папка пользователя (user-{id}-files/)
      */
-    public static String getRootFolder(HttpServletRequest request, JwtUtil jwtUtil) {
-        String token = jwtUtil.getTokenFromHeader(request)
-                .orElseThrow(() -> new JwtException("JWT Token не был найден"));
-
-        Long userId = jwtUtil.extractUserId(token);
-
-        return "user-" + userId + "-files/";
+    public static String getRootFolder(HttpServletRequest request, PrincipalResolver principalResolver) {
+        return principalResolver.resolve(request).rootFolder();
     }
 
     /**
      * Получение полного пути до ресурса пользователя (должен вызываться первым делом, чтобы получать root папку пользователя)
      */
-    public static String getFullUserPath(String path, HttpServletRequest request, JwtUtil jwtUtil) {
-        String newPath = getStandardFullRootFolder(path, request, jwtUtil);
+    public static String getFullUserPath(String path, HttpServletRequest request, PrincipalResolver principalResolver) {
+        String newPath = getStandardFullRootFolder(path, request, principalResolver);
         return isFolderPath(newPath) && !newPath.endsWith("/") ? newPath + "/" : newPath;
     }
 
-    public static String getStandardFullRootFolder(String path, HttpServletRequest request, JwtUtil jwtUtil) {
+    public static String getStandardFullRootFolder(String path, HttpServletRequest request, PrincipalResolver principalResolver) {
         String newPath = getStandardPath(path);
-        return getRootFolder(request, jwtUtil) + newPath;
+        return getRootFolder(request, principalResolver) + newPath;
     }
 
     /**
@@ -166,4 +159,102 @@ public class MinioStorageUtils {
             validatePathToFile(path);
         }
     }
+
+    /**
+     * Шаблон LIKE для поиска всех путей, начинающихся с префикса. Спецсимволы LIKE экранируются обратным слэшем
+     *
+     * @param prefix префикс пути (например, путь до папки)
+     * @return шаблон вида prefix%
+     */
+    public static String toPrefixLikePattern(String prefix) {
+        return prefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Шаблон LIKE для поиска подстроки. Спецсимволы LIKE экранируются обратным слэшем
+     *
+     * @param substring искомая подстрока
+     * @return шаблон вида %substring%
+     */
+    public static String toSubstringLikePattern(String substring) {
+        return "%" + toPrefixLikePattern(substring);
+    }
+
+    /**
+     * Сравнение путей в том порядке, в котором хранилище отдает ключи (побайтово в UTF-8)
+     */
+    public static int compareObjectNames(String left, String right) {
+        return Arrays.compareUnsigned(left.getBytes(StandardCharsets.UTF_8), right.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Курсор страницы: путь последнего отданного ресурса в base64url, чтобы клиент передавал его как есть
+     *
+     * @param objectName полный путь последнего ресурса страницы
+     * @return непрозрачный курсор
+     */
+    public static String toCursor(String objectName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбор курсора страницы
+     *
+     * @param cursor курсор из запроса (null --> первая страница)
+     * @return полный путь последнего ресурса предыдущей страницы или null
+     * @throws IllegalArgumentException > курсор поврежден
+     */
+    public static String fromCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неверный курсор страницы");
+        }
+    }
+
+    /**
+     * Проверка, что хранилище отклонило условную запись, потому что объект уже существует.
+     * Ошибка ищется по цепочке причин, так как асинхронный клиент оборачивает ее в ExecutionException/CompletionException
+     *
+     * @param e ошибка записи
+     * @return true --> объект по этому ключу уже есть
+     */
+    public static boolean isObjectAlreadyExistsError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ErrorResponseException errorResponseException
+                    && "PreconditionFailed".equals(errorResponseException.errorResponse().code())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Значение Content-Disposition для скачивания файла. Имя кодируется по RFC 5987, чтобы не терять кириллицу
+     *
+     * @param fileName имя файла
+     * @return attachment; filename*=UTF-8''имя
+     */
+    public static String getAttachmentDisposition(String fileName) {
+        return "attachment; filename*=UTF-8''" + URLEncoder.encode(fileName, StandardCharsets.UTF_8)
+                .replace("+", "%20");
+    }
+
+    /**
+     * MIME тип по формату файла
+     *
+     * @param fileType формат файла
+     * @return MIME тип для хранения в MinIO
+     */
+    public static String getMimeType(ContentType fileType) {
+        return switch (fileType) {
+            case PDF -> "application/pdf";
+            case DOCX -> "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        };
+    }
 }
@@ -0,0 +1,236 @@
+package com.lostway.cloudfilestorage.utils;
+
+import com.lostway.cloudfilestorage.exception.dto.InvalidFolderPathException;
+
+/**
+ * Разбор путей ресурсов за один проход по строке, без регулярных выражений и split.
+ * Правила проверки совпадают с прежними регулярными выражениями:
+ * <ul>
+ *     <li>папка: пусто или сегменты из букв, цифр 0-9, пробела, '_' и '-', каждый заканчивается '/'</li>
+ *     <li>файл: такие же сегменты папок (цифры любые), затем имя.расширение, точка в имени ровно одна</li>
+ *     <li>поисковый запрос: от 1 до 100 символов из букв, цифр, пробела, '_', '-' и '.'</li>
+ * </ul>
+ */
+public final class PathCodec {
+
+    public static final int MAX_SEARCH_QUERY_LENGTH = 100;
+
+    private PathCodec() {
+    }
+
+    /**
+     * Тип ресурса по пути
+     */
+    public enum Kind {
+        FOLDER,
+        FILE
+    }
+
+    /**
+     * Проверенный и нормализованный путь
+     *
+     * @param value     путь без ведущих '/', путь папки всегда заканчивается '/'
+     * @param kind      папка или файл
+     * @param nameStart индекс начала последнего сегмента (имени) в value
+     */
+    public record ParsedPath(String value, Kind kind, int nameStart) {
+
+        public boolean isFolder() {
+            return kind == Kind.FOLDER;
+        }
+
+        /**
+         * Имя ресурса без пути и без завершающего '/': a/b/ --> b, a/b.txt --> b.txt
+         */
+        public String name() {
+            return value.substring(nameStart, isFolder() && !value.isEmpty() ? value.length() - 1 : value.length());
+        }
+
+        /**
+         * Папка, в которой лежит ресурс: a/b/c.txt --> a/b/, a/ --> "" (корень)
+         */
+        public String parent() {
+            return value.substring(0, nameStart);
+        }
+    }
+
+    /**
+     * Проверка и нормализация пути: ведущие '/' отбрасываются, к пути папки добавляется завершающий '/'.
+     * Тип ресурса определяется так же, как в {@link MinioStorageUtils#isFolderPath(String)}
+     *
+     * @param path путь к ресурсу (null или пусто --> корень)
+     * @throws InvalidFolderPathException > путь не проходит проверку
+     */
+    public static ParsedPath parse(String path) {
+        String value = stripLeadingSlashes(path);
+        boolean folder = isFolder(value);
+        if (folder && !value.isEmpty() && value.charAt(value.length() - 1) != '/') {
+            value = value + '/';
+        }
+
+        if (folder ? !isValidFolderPath(value) : !isValidFilePath(value)) {
+            throw new InvalidFolderPathException("Недопустимый путь: " + path);
+        }
+
+        int nameEnd = folder && !value.isEmpty() ? value.length() - 1 : value.length();
+        return new ParsedPath(value, folder ? Kind.FOLDER : Kind.FILE, value.lastIndexOf('/', nameEnd - 1) + 1);
+    }
+
+    /**
+     * Путь без ведущих '/'. Если их нет, возвращается та же строка
+     *
+     * @param path путь (null --> "")
+     */
+    public static String stripLeadingSlashes(String path) {
+        if (path == null || path.isBlank()) {
+            return "";
+        }
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        return path.substring(start);
+    }
+
+    /**
+     * Папка или файл: путь папки заканчивается '/' или в последнем сегменте нет точки
+     */
+    public static boolean isFolder(String path) {
+        int length = path.length();
+        if (length > 0 && path.charAt(length - 1) == '/') {
+            return true;
+        }
+        return path.indexOf('.', path.lastIndexOf('/') + 1) < 0;
+    }
+
+    /**
+     * Имя ресурса без пути: завершающие '/' отбрасываются, берется последний сегмент
+     *
+     * @return a/b/ --> b, a/b.txt --> b.txt, "" --> ""
+     */
+    public static String name(String path) {
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(path.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * Корректный путь до папки (в том числе пустой путь корня)
+     */
+    public static boolean isValidFolderPath(String path) {
+        int segmentLength = 0;
+        for (int i = 0; i < path.length(); ) {
+            int codePoint = path.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (codePoint == '/') {
+                if (segmentLength == 0) {
+                    return false;
+                }
+                segmentLength = 0;
+            } else if (isFolderChar(codePoint)) {
+                segmentLength++;
+            } else {
+                return false;
+            }
+        }
+        return segmentLength == 0;
+    }
+
+    /**
+     * Корректный путь до файла: папки, затем имя с одной точкой и непустым расширением из букв и цифр
+     */
+    public static boolean isValidFilePath(String path) {
+        int segmentLength = 0;
+        int extensionLength = -1;
+        for (int i = 0; i < path.length(); ) {
+            int codePoint = path.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (codePoint == '/') {
+                if (segmentLength == 0 || extensionLength >= 0) {
+                    return false;
+                }
+                segmentLength = 0;
+            } else if (codePoint == '.') {
+                if (segmentLength == 0 || extensionLength >= 0) {
+                    return false;
+                }
+                extensionLength = 0;
+            } else if (extensionLength >= 0) {
+                if (!isLetterOrNumber(codePoint)) {
+                    return false;
+                }
+                extensionLength++;
+            } else if (isNameChar(codePoint)) {
+                segmentLength++;
+            } else {
+                return false;
+            }
+        }
+        return extensionLength > 0;
+    }
+
+    /**
+     * Допустимый поисковый запрос
+     */
+    public static boolean isValidSearchQuery(String query) {
+        int length = 0;
+        for (int i = 0; i < query.length(); ) {
+            int codePoint = query.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (++length > MAX_SEARCH_QUERY_LENGTH || codePoint != '.' && !isNameChar(codePoint)) {
+                return false;
+            }
+        }
+        return length > 0;
+    }
+
+    /**
+     * Путь объекта после переноса папки: префикс старой папки заменяется новой папкой
+     *
+     * @param objectName    полный путь объекта внутри старой папки
+     * @param oldFolderPath старая папка (префикс objectName)
+     * @param newFolderPath новая папка
+     */
+    public static String rebase(String objectName, String oldFolderPath, String newFolderPath) {
+        if (!objectName.startsWith(oldFolderPath)) {
+            throw new IllegalArgumentException("Объект " + objectName + " не находится в папке " + oldFolderPath);
+        }
+        return newFolderPath.concat(objectName.substring(oldFolderPath.length()));
+    }
+
+    /**
+     * Символ имени папки: буква, цифра 0-9, пробел, '_' или '-'
+     */
+    private static boolean isFolderChar(int codePoint) {
+        return codePoint >= '0' && codePoint <= '9'
+                || codePoint == ' ' || codePoint == '_' || codePoint == '-'
+                || Character.isLetter(codePoint);
+    }
+
+    /**
+     * Символ имени файла и папок в пути файла: буква, любая цифра, пробел, '_' или '-'
+     */
+    private static boolean isNameChar(int codePoint) {
+        return codePoint == ' ' || codePoint == '_' || codePoint == '-' || isLetterOrNumber(codePoint);
+    }
+
+    private static boolean isLetterOrNumber(int codePoint) {
+        if (codePoint < 0x80) {
+            return codePoint >= 'a' && codePoint <= 'z'
+                    || codePoint >= 'A' && codePoint <= 'Z'
+                    || codePoint >= '0' && codePoint <= '9';
+        }
+        if (Character.isLetter(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.DECIMAL_DIGIT_NUMBER
+                || type == Character.LETTER_NUMBER
+                || type == Character.OTHER_NUMBER;
+    }
+}
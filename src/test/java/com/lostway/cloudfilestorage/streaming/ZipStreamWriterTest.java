@@ -0,0 +1,116 @@
+package com.lostway.cloudfilestorage.streaming;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipStreamWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mixedEntriesAreReadableByZipFile() throws IOException {
+        byte[] stored = randomBytes(70_000, 1);
+        byte[] deflated = "повторяющийся текст ".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipStreamWriter writer = new ZipStreamWriter(archive, 6)) {
+            writer.putNextEntry("docs/photo.jpg", false).write(stored);
+            writer.putNextEntry("docs/отчёт.txt", true).write(deflated);
+            writer.putNextEntry("docs/empty.txt", false);
+            writer.putNextEntry("docs/empty-deflated.txt", true);
+            writer.putNextEntry("docs/пустая/", false);
+            writer.finish();
+        }
+
+        Path file = tempDir.resolve("mixed.zip");
+        Files.write(file, archive.toByteArray());
+
+        try (ZipFile zip = new ZipFile(file.toFile(), StandardCharsets.UTF_8)) {
+            assertThat(zip.size()).isEqualTo(5);
+
+            assertEntry(zip, "docs/photo.jpg", ZipEntry.STORED, stored);
+            assertEntry(zip, "docs/отчёт.txt", ZipEntry.DEFLATED, deflated);
+            assertEntry(zip, "docs/empty.txt", ZipEntry.STORED, new byte[0]);
+            assertEntry(zip, "docs/empty-deflated.txt", ZipEntry.DEFLATED, new byte[0]);
+
+            ZipEntry directory = zip.getEntry("docs/пустая/");
+            assertThat(directory).isNotNull();
+            assertThat(directory.isDirectory()).isTrue();
+            assertThat(directory.getSize()).isZero();
+
+            assertThat(zip.getEntry("docs/отчёт.txt").getCompressedSize()).isLessThan(deflated.length);
+        }
+    }
+
+    @Test
+    void storedArchiveLengthMatchesWrittenBytes() throws IOException {
+        List<String> names = List.of("a.txt", "папка/файл.bin", "папка/пусто.txt", "папка/", "𝒜/b.dat");
+        List<Long> sizes = List.of(13L, 100_003L, 0L, 0L, 65_536L);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipStreamWriter writer = new ZipStreamWriter(archive, 6)) {
+            for (int i = 0; i < names.size(); i++) {
+                OutputStream entry = writer.putNextEntry(names.get(i), false);
+                entry.write(randomBytes(sizes.get(i).intValue(), i));
+            }
+            writer.finish();
+        }
+
+        assertThat((long) archive.size()).isEqualTo(ZipStreamWriter.storedArchiveLength(names, sizes));
+
+        Path file = tempDir.resolve("stored.zip");
+        Files.write(file, archive.toByteArray());
+        try (ZipFile zip = new ZipFile(file.toFile(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < names.size(); i++) {
+                assertEntry(zip, names.get(i), ZipEntry.STORED, randomBytes(sizes.get(i).intValue(), i));
+            }
+        }
+    }
+
+    @Test
+    void emptyArchiveLengthMatchesWrittenBytes() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipStreamWriter writer = new ZipStreamWriter(archive, 6)) {
+            writer.finish();
+        }
+
+        assertThat((long) archive.size()).isEqualTo(ZipStreamWriter.storedArchiveLength(List.of(), List.of()));
+
+        Path file = tempDir.resolve("empty.zip");
+        Files.write(file, archive.toByteArray());
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertThat(zip.size()).isZero();
+        }
+    }
+
+    private static void assertEntry(ZipFile zip, String name, int method, byte[] expected) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        assertThat(entry).as(name).isNotNull();
+        assertThat(entry.getMethod()).as(name).isEqualTo(method);
+        assertThat(entry.getSize()).as(name).isEqualTo(expected.length);
+        try (InputStream in = zip.getInputStream(entry)) {
+            assertThat(in.readAllBytes()).as(name).isEqualTo(expected);
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
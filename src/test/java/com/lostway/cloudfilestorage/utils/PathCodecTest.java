@@ -0,0 +1,171 @@
+package com.lostway.cloudfilestorage.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сравнение {@link PathCodec} с прежними проверками на регулярных выражениях и split
+ */
+class PathCodecTest {
+
+    private static final Pattern LEGACY_FOLDER_PATH =
+            Pattern.compile("^(?!.*//)(?!.*\\.{1,2})([\\p{L}\\d _-]+/)*$");
+
+    private static final Pattern LEGACY_FILE_PATH =
+            Pattern.compile("^(?!.*//)(?!.*(?:^|/)\\.)(?!.*(?:^|/)\\.\\.)([\\p{L}\\p{N} _\\-]+/)*[\\p{L}\\p{N} _\\-]+\\.[\\p{L}\\p{N}]+$");
+
+    private static final Pattern LEGACY_SEARCH_QUERY =
+            Pattern.compile("^[\\p{L}\\p{N} _\\-.]{1,100}$");
+
+    /**
+     * Фрагменты для случайных путей: ASCII, кириллица, цифры не из ASCII, суррогатные пары, разделители и запрещенные символы
+     */
+    private static final String[] FRAGMENTS = {
+            "a", "Z", "7", "я", "Ё", "٣", "½", "Ⅻ", "𝒜", "𝟘", "\uD835",
+            " ", "_", "-", ".", "..", "/", "//", "$", "\\", "!", "\n", "\t"
+    };
+
+    @Test
+    void matchesLegacyPatternsOnRandomPaths() {
+        Random random = new Random(20250901L);
+        for (int i = 0; i < 200_000; i++) {
+            String path = randomPath(random, 12);
+
+            assertThat(PathCodec.isValidFolderPath(path)).as("folder: %s", path)
+                    .isEqualTo(LEGACY_FOLDER_PATH.matcher(path).matches());
+            assertThat(PathCodec.isValidFilePath(path)).as("file: %s", path)
+                    .isEqualTo(LEGACY_FILE_PATH.matcher(path).matches());
+            assertThat(PathCodec.isValidSearchQuery(path)).as("query: %s", path)
+                    .isEqualTo(LEGACY_SEARCH_QUERY.matcher(path).matches());
+
+            if (LEGACY_FOLDER_PATH.matcher(path).matches() || LEGACY_FILE_PATH.matcher(path).matches()) {
+                assertThat(PathCodec.name(path)).as("name: %s", path).isEqualTo(legacyName(path));
+            }
+        }
+    }
+
+    @Test
+    void matchesLegacyPatternOnLongQueries() {
+        Random random = new Random(20250902L);
+        for (int i = 0; i < 20_000; i++) {
+            String query = randomPath(random, 120);
+
+            assertThat(PathCodec.isValidSearchQuery(query)).as("query: %s", query)
+                    .isEqualTo(LEGACY_SEARCH_QUERY.matcher(query).matches());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "docs/", "Документы/", "отчеты 2025/", "a_b-c/d e/", "٣/", "𝒜/", "½/",
+            "a//", "//", "/", "a", "a/.b/", "a/../", ".a/", "a.b/", "a/b"})
+    void folderPathMatchesLegacyPattern(String path) {
+        assertThat(PathCodec.isValidFolderPath(path)).isEqualTo(LEGACY_FOLDER_PATH.matcher(path).matches());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a.txt", "docs/report.pdf", "Документы/отчет.docx", "٣/a.txt", "a/٣.txt", "a.٣",
+            "𝒜/𝒜.txt", "a.𝒜", "½.txt", "a//b.txt", "/a.txt", ".txt", "a/.b.txt", "../a.txt", "a/..txt",
+            "a.", "a.b.c", "a.b/c.txt", "a.t-t", "a", "a/"})
+    void filePathMatchesLegacyPattern(String path) {
+        assertThat(PathCodec.isValidFilePath(path)).isEqualTo(LEGACY_FILE_PATH.matcher(path).matches());
+    }
+
+    /**
+     * В папках допускаются только цифры 0-9 (\d), в пути файла -- любые цифры (\p{N})
+     */
+    @Test
+    void folderSegmentsAllowOnlyAsciiDigits() {
+        assertThat(PathCodec.isValidFolderPath("٣/")).isFalse();
+        assertThat(PathCodec.isValidFolderPath("2025/")).isTrue();
+        assertThat(PathCodec.isValidFilePath("٣/a.txt")).isTrue();
+        assertThat(PathCodec.isValidFilePath("a/٣.txt")).isTrue();
+    }
+
+    @Test
+    void surrogatePairsAreSingleCharacters() {
+        assertThat(PathCodec.isValidFolderPath("𝒜/")).isTrue();
+        assertThat(PathCodec.isValidFilePath("𝒜/𝒜.𝟘")).isTrue();
+        assertThat(PathCodec.isValidFolderPath("\uD835/")).isFalse();
+        assertThat(PathCodec.isValidFilePath("\uD835.txt")).isFalse();
+    }
+
+    @Test
+    void searchQueryLengthIsCountedInCodePoints() {
+        assertThat(PathCodec.isValidSearchQuery("a".repeat(100))).isTrue();
+        assertThat(PathCodec.isValidSearchQuery("a".repeat(101))).isFalse();
+        assertThat(PathCodec.isValidSearchQuery("𝒜".repeat(100))).isTrue();
+        assertThat(PathCodec.isValidSearchQuery("𝒜".repeat(101))).isFalse();
+        assertThat(PathCodec.isValidSearchQuery("")).isFalse();
+
+        for (String query : new String[]{"a".repeat(100), "a".repeat(101), "𝒜".repeat(100), "𝒜".repeat(101), "я.txt"}) {
+            assertThat(PathCodec.isValidSearchQuery(query)).isEqualTo(LEGACY_SEARCH_QUERY.matcher(query).matches());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a", "a/", "a/b/", "a/b.txt", "user-1-files/Документы/отчет.pdf", "𝒜/𝒜.txt", ""})
+    void nameMatchesLegacySplit(String path) {
+        assertThat(PathCodec.name(path)).isEqualTo(legacyName(path));
+    }
+
+    @Test
+    void rebaseReplacesFolderPrefix() {
+        assertThat(PathCodec.rebase("user-1-files/a/b/c.txt", "user-1-files/a/", "user-1-files/x/"))
+                .isEqualTo("user-1-files/x/b/c.txt")
+                .isEqualTo("user-1-files/a/b/c.txt".replaceFirst(Pattern.quote("user-1-files/a/"), "user-1-files/x/"));
+        assertThat(PathCodec.rebase("a/", "a/", "b/")).isEqualTo("b/");
+    }
+
+    /**
+     * Прежний replaceFirst трактовал '$' и '\' в новом пути как часть шаблона замены: падал или терял символы
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"x$1/", "x$/", "x\\/", "x\\"})
+    void rebaseTreatsNewFolderLiterally(String newFolderPath) {
+        String objectName = "a/b/c.txt";
+
+        assertThat(PathCodec.rebase(objectName, "a/", newFolderPath))
+                .isEqualTo(newFolderPath + "b/c.txt")
+                .isEqualTo(objectName.replaceFirst(Pattern.quote("a/"), Matcher.quoteReplacement(newFolderPath)));
+        assertThat(legacyRebase(objectName, "a/", newFolderPath)).isNotEqualTo(newFolderPath + "b/c.txt");
+    }
+
+    @Test
+    void rebaseRejectsObjectOutsideFolder() {
+        assertThatThrownBy(() -> PathCodec.rebase("b/a/c.txt", "a/", "x/"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String randomPath(Random random, int maxFragments) {
+        StringBuilder path = new StringBuilder();
+        int fragments = random.nextInt(maxFragments + 1);
+        for (int i = 0; i < fragments; i++) {
+            path.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return path.toString();
+    }
+
+    private static String legacyRebase(String objectName, String oldFolderPath, String newFolderPath) {
+        try {
+            return objectName.replaceFirst(Pattern.quote(oldFolderPath), newFolderPath);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String legacyName(String path) {
+        String trimmedPath = path.endsWith("/")
+                ? path.substring(0, path.length() - 1)
+                : path;
+        String[] parts = trimmedPath.split("/");
+        return parts[parts.length - 1];
+    }
+}